@@ -0,0 +1,48 @@
+package com.operas.benchmark;
+
+import com.operas.utils.MinMaxDownsampler;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The per-row work behind /api/statistics/environment/{metric}
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DownsamplingBenchmark {
+
+    @Param({"21600", "604800"})
+    private int samples;
+
+    @Param({"200"})
+    private int points;
+
+    private long[] timestamps;
+    private double[] values;
+
+    @Setup
+    public void setup() {
+        timestamps = new long[samples];
+        values = new double[samples];
+        // Fixed seed so every run and fork downsamples the same series
+        Random random = new Random(42);
+        double value = 600;
+        for (int i = 0; i < samples; i++) {
+            value += random.nextGaussian() * 10;
+            timestamps[i] = i * 1000L;
+            values[i] = value;
+        }
+    }
+
+    @Benchmark
+    public List<MinMaxDownsampler.Point> minMax() {
+        MinMaxDownsampler downsampler = new MinMaxDownsampler(0, samples * 1000L, points / 2);
+        for (int i = 0; i < samples; i++) {
+            downsampler.add(timestamps[i], values[i]);
+        }
+        return downsampler.result();
+    }
+}
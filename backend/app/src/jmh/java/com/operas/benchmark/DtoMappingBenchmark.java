@@ -0,0 +1,39 @@
+package com.operas.benchmark;
+
+import com.operas.dto.PartyDto;
+import com.operas.dto.UserDto;
+import com.operas.model.Party;
+import com.operas.model.User;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Entity to DTO mapping done for every party and user returned by the API
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DtoMappingBenchmark {
+
+    @Param({"5", "50"})
+    private int guests;
+
+    private Party party;
+    private User user;
+
+    @Setup
+    public void setup() {
+        party = Fixtures.party(1, Party.PartyStatus.IN_PROGRESS, 100, guests);
+        user = Fixtures.user(2, User.UserType.HOUSER);
+    }
+
+    @Benchmark
+    public PartyDto partyFromEntity() {
+        return PartyDto.fromEntity(party);
+    }
+
+    @Benchmark
+    public UserDto userFromEntity() {
+        return UserDto.fromEntity(user);
+    }
+}
@@ -0,0 +1,48 @@
+package com.operas.benchmark;
+
+import com.operas.model.GuestStatus;
+import com.operas.model.Party;
+import com.operas.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Entities shaped like production data, built without a database
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static User user(long id, User.UserType type) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setPassword("password");
+        user.setType(type);
+        return user;
+    }
+
+    static Party party(long id, Party.PartyStatus status, long firstGuestId, int guests) {
+        LocalDateTime now = LocalDateTime.now();
+        Party party = new Party();
+        party.setId(id);
+        party.setName("Party " + id);
+        party.setDescription("Benchmark party");
+        party.setHost(user(1, User.UserType.HOUSER));
+        party.setCreatedAt(now.minusDays(1));
+        party.setDateTime(now.minusHours(1));
+        party.setEndDateTime(now.plusHours(3));
+        party.setStatus(status);
+        party.setType(Party.PartyType.HOUSE_PARTY);
+        party.setRooms(new ArrayList<>(List.of(Party.Room.LIVING_ROOM, Party.Room.KITCHEN)));
+
+        List<GuestStatus> guestStatuses = new ArrayList<>();
+        for (int i = 0; i < guests; i++) {
+            User guest = user(firstGuestId + i, User.UserType.GUEST);
+            guestStatuses.add(new GuestStatus(firstGuestId + i, party, guest, GuestStatus.Status.GOING, now));
+        }
+        party.setGuests(guestStatuses);
+        return party;
+    }
+}
@@ -0,0 +1,76 @@
+package com.operas.benchmark;
+
+import com.operas.model.Party;
+import com.operas.repository.PartyRepository;
+import com.operas.service.DoorService;
+import com.operas.service.PartyService;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Guest check in DoorService.openDoor: loads every party, brings their statuses up to date and
+// scans them on each guest door open. findAll hands out freshly built entities like Hibernate
+// would; the database round trip itself is not part of the measurement.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GuestAuthorizationBenchmark {
+
+    @Param({"20", "500"})
+    private int parties;
+
+    @Param({"30"})
+    private int guestsPerParty;
+
+    private PartyService partyService;
+    private Long invitedGuestId;
+    private Long strangerId;
+
+    @Setup
+    public void setup() {
+        long lastGuestId = 1000L + (long) parties * guestsPerParty;
+        invitedGuestId = lastGuestId - 1;
+        strangerId = lastGuestId + 1;
+        partyService = new PartyService(partyRepository(), null, null, null);
+    }
+
+    @Benchmark
+    public boolean invitedGuest() {
+        return DoorService.isGuestOfOngoingParty(partyService.findAllWithCurrentStatus(LocalDateTime.now()), invitedGuestId);
+    }
+
+    @Benchmark
+    public boolean uninvitedGuest() {
+        return DoorService.isGuestOfOngoingParty(partyService.findAllWithCurrentStatus(LocalDateTime.now()), strangerId);
+    }
+
+    // Only findAll and save are used by the guest check
+    private PartyRepository partyRepository() {
+        return (PartyRepository) Proxy.newProxyInstance(PartyRepository.class.getClassLoader(), new Class<?>[] { PartyRepository.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findAll" -> loadParties();
+                case "save" -> args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> "PartyRepository stub";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private List<Party> loadParties() {
+        List<Party> allParties = new ArrayList<>();
+        long nextGuestId = 1000;
+        for (int i = 0; i < parties; i++) {
+            // Only the newest party is in progress, the rest are history
+            Party.PartyStatus status = i == parties - 1 ? Party.PartyStatus.IN_PROGRESS : Party.PartyStatus.COMPLETED;
+            allParties.add(Fixtures.party(i + 1, status, nextGuestId, guestsPerParty));
+            nextGuestId += guestsPerParty;
+        }
+        return allParties;
+    }
+}
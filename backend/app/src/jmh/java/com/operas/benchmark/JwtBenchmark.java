@@ -0,0 +1,43 @@
+package com.operas.benchmark;
+
+import com.operas.security.JwtUtil;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// Runs on every authenticated request in JwtAuthenticationFilter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        jwtUtil = new JwtUtil();
+        set("secret", Base64.getEncoder().encodeToString("benchmark-secret-benchmark-secret-0123456789".getBytes()));
+        set("jwtExpirationInMs", 3_600_000L);
+        token = jwtUtil.generateToken("42");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUserIdFromJWT() {
+        return jwtUtil.getUserIdFromJWT(token);
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = JwtUtil.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(jwtUtil, value);
+    }
+}
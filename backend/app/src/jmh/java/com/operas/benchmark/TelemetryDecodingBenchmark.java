@@ -0,0 +1,33 @@
+package com.operas.benchmark;
+
+import com.operas.dto.EnvironmentSample;
+import com.operas.utils.JsonUtils;
+import com.operas.utils.TelemetryDecoder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Runs for every doorbell/environment MQTT message
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TelemetryDecodingBenchmark {
+
+    private static final String PAYLOAD = "{\"temperature\":21.73,\"humidity\":44.10,\"pressure\":1013.42,\"altitude\":110.50,"
+        + "\"air_quality_index\":2,\"tvoc_ppb\":143,\"eco2_ppm\":612}";
+
+    private final byte[] payload = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public Map<String, Object> parseJsonToMap() {
+        return JsonUtils.parseJsonToMap(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public EnvironmentSample decodeEnvironment() throws Exception {
+        return TelemetryDecoder.decodeEnvironment(payload, 0L);
+    }
+}
@@ -0,0 +1,190 @@
+package com.operas.loadtest;
+
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for the ESP32 so the door path can be exercised locally. By default it also starts an
+ * in-process MQTT broker, so no mosquitto container is needed; point the backend at it with the
+ * loadtest profile (mqtt.broker=tcp://localhost:1883).
+ *
+ * ./gradlew :app:simulateDevice --args="--port=1883 --latency-ms=150 --failure-rate=0.01"
+ * Use --broker=tcp://host:1883 to attach to an existing broker instead.
+ */
+public class DeviceSimulator {
+
+    private static final String TOPIC_OPEN_OUTER = "doorbell/open/outer";
+    private static final String TOPIC_OPEN_INNER = "doorbell/open/inner";
+    private static final String TOPIC_OPEN_STATUS = "doorbell/open/status";
+    private static final String TOPIC_ONLINE_STATUS = "doorbell/online/status";
+    private static final String TOPIC_PING = "doorbell/ping";
+    private static final String TOPIC_ENVIRONMENT = "doorbell/environment";
+
+    private final String brokerUrl;
+    private final String username;
+    private final String password;
+    // Delay before answering a door command, plus up to the same amount of random jitter
+    private final long latencyMs;
+    // Share of door commands answered with *_failed
+    private final double failureRate;
+    // Share of door commands never answered, to exercise the response timeout
+    private final double dropRate;
+    private final long heartbeatIntervalMs;
+    private final long telemetryIntervalMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final long bootedAt = System.currentTimeMillis();
+
+    private MqttClient mqttClient;
+
+    // Random walk state of the simulated sensors, only touched by the telemetry task.
+    // Humidity is a 0-1 fraction like the real sensor reports it.
+    private double temperature = 21.5;
+    private double humidity = 0.45;
+    private double tvoc = 120;
+    private double eco2 = 600;
+
+    public DeviceSimulator(String brokerUrl, Map<String, String> options) {
+        this.brokerUrl = brokerUrl;
+        this.username = options.getOrDefault("username", "");
+        this.password = options.getOrDefault("password", "");
+        this.latencyMs = Long.parseLong(options.getOrDefault("latency-ms", "200"));
+        this.failureRate = Double.parseDouble(options.getOrDefault("failure-rate", "0.0"));
+        this.dropRate = Double.parseDouble(options.getOrDefault("drop-rate", "0.0"));
+        this.heartbeatIntervalMs = Long.parseLong(options.getOrDefault("heartbeat-interval-ms", "5000"));
+        this.telemetryIntervalMs = Long.parseLong(options.getOrDefault("telemetry-interval-ms", "2000"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+
+        Server broker = null;
+        String brokerUrl = options.get("broker");
+        if (brokerUrl == null) {
+            String port = options.getOrDefault("port", "1883");
+            broker = startBroker(port);
+            brokerUrl = "tcp://localhost:" + port;
+        }
+
+        DeviceSimulator simulator = new DeviceSimulator(brokerUrl, options);
+        simulator.start();
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Server startedBroker = broker;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            simulator.stop();
+            if (startedBroker != null) {
+                startedBroker.stopServer();
+            }
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+
+    // Anonymous, in-memory broker on all interfaces; nothing survives a restart
+    public static Server startBroker(String port) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("host", "0.0.0.0");
+        properties.setProperty("port", port);
+        properties.setProperty("allow_anonymous", "true");
+        properties.setProperty("persistence_enabled", "false");
+
+        Server broker = new Server();
+        broker.startServer(new MemoryConfig(properties));
+        System.out.println("[SIMULATOR] In-process MQTT broker listening on port " + port);
+        return broker;
+    }
+
+    public void start() throws MqttException {
+        mqttClient = new MqttClient(brokerUrl, "doorbell-simulator-" + MqttClient.generateClientId(), new MemoryPersistence());
+
+        MqttConnectOptions options = new MqttConnectOptions();
+        if (!username.isEmpty()) {
+            options.setUserName(username);
+            options.setPassword(password.toCharArray());
+        }
+        options.setAutomaticReconnect(true);
+        options.setCleanSession(true);
+
+        mqttClient.connect(options);
+
+        // Replies are published from the scheduler, never from the Paho callback thread
+        mqttClient.subscribe(TOPIC_OPEN_OUTER, 1, (topic, message) -> answerDoorCommand("outer"));
+        mqttClient.subscribe(TOPIC_OPEN_INNER, 1, (topic, message) -> answerDoorCommand("inner"));
+
+        scheduler.scheduleAtFixedRate(() -> publish(TOPIC_ONLINE_STATUS, "online"), 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::publishTelemetry, 0, telemetryIntervalMs, TimeUnit.MILLISECONDS);
+
+        System.out.println("[SIMULATOR] Simulated doorbell device connected to " + brokerUrl
+            + " (latency " + latencyMs + "ms, failure rate " + failureRate + ", drop rate " + dropRate + ")");
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        try {
+            if (mqttClient != null && mqttClient.isConnected()) {
+                mqttClient.disconnect();
+            }
+        } catch (MqttException e) {
+            System.err.println("[SIMULATOR] Failed to disconnect: " + e.getMessage());
+        }
+    }
+
+    private void answerDoorCommand(String door) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < dropRate) {
+            System.out.println("[SIMULATOR] Dropping " + door + " door command");
+            return;
+        }
+        String result = random.nextDouble() < failureRate ? "_failed" : "_success";
+        long delay = latencyMs + (latencyMs > 0 ? random.nextLong(latencyMs + 1) : 0);
+        scheduler.schedule(() -> publish(TOPIC_OPEN_STATUS, door + result), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void publishTelemetry() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        temperature = clamp(temperature + random.nextGaussian() * 0.05, 15, 30);
+        humidity = clamp(humidity + random.nextGaussian() * 0.002, 0.2, 0.8);
+        tvoc = clamp(tvoc + random.nextGaussian() * 5, 0, 3000);
+        eco2 = clamp(eco2 + random.nextGaussian() * 10, 400, 2500);
+        int airQualityIndex = eco2 >= 1500 ? 4 : eco2 >= 1000 ? 3 : eco2 >= 800 ? 2 : 1;
+
+        long uptime = (System.currentTimeMillis() - bootedAt) / 1000;
+        publish(TOPIC_PING, String.format(Locale.ROOT,
+            "{\"ping\":%d,\"uptime_days\":%d,\"uptime_hours\":%d,\"uptime_minutes\":%d,\"uptime_seconds\":%d}",
+            5 + random.nextInt(30), uptime / 86400, (uptime % 86400) / 3600, (uptime % 3600) / 60, uptime % 60));
+
+        publish(TOPIC_ENVIRONMENT, String.format(Locale.ROOT,
+            "{\"temperature\":%.2f,\"humidity\":%.4f,\"pressure\":%.2f,\"altitude\":%.2f,"
+            + "\"air_quality_index\":%d,\"tvoc_ppb\":%d,\"eco2_ppm\":%d}",
+            temperature, humidity, 1013.25 + random.nextGaussian(), 110.0, airQualityIndex, Math.round(tvoc), Math.round(eco2)));
+    }
+
+    private void publish(String topic, String payload) {
+        try {
+            mqttClient.publish(topic, new MqttMessage(payload.getBytes()));
+        } catch (MqttException e) {
+            System.err.println("[SIMULATOR] Failed to publish to " + topic + ": " + e.getMessage());
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
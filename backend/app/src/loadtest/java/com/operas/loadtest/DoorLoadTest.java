@@ -0,0 +1,209 @@
+package com.operas.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test of POST /door. Every simulated user logs in with its own seeded account
+ * and opens the door in a loop, so the per-user rate limit is not what gets measured.
+ *
+ * Start ./gradlew :app:simulateDevice and the backend with --spring.profiles.active=loadtest, then run
+ * ./gradlew :app:loadTest --args="--base-url=http://localhost:8080 --users=50 --duration=60"
+ */
+public class DoorLoadTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final String baseUrl;
+    private final int users;
+    private final int durationSeconds;
+    private final long thinkMillis;
+    private final String password;
+
+    public DoorLoadTest(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        this.users = Integer.parseInt(options.getOrDefault("users", "50"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        // Two opens per 10 s are allowed per user, stay just under it
+        this.thinkMillis = Long.parseLong(options.getOrDefault("think-ms", "5000"));
+        this.password = options.getOrDefault("password", "loadtest");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+        List<String> scenarios = Arrays.asList(options.getOrDefault("scenarios", "houser,guest,maintenance").split(","));
+
+        DoorLoadTest test = new DoorLoadTest(options);
+        List<Result> results = new ArrayList<>();
+        for (String scenario : scenarios) {
+            results.add(test.runScenario(scenario.trim()));
+        }
+
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-12s %8s %9s %8s %9s %9s %9s %9s  %s",
+            "scenario", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "status codes"));
+        for (Result result : results) {
+            System.out.println(result.summary());
+        }
+    }
+
+    private Result runScenario(String scenario) throws Exception {
+        return switch (scenario) {
+            case "houser" -> run(scenario, "lthouser%03d");
+            case "guest" -> run(scenario, "ltguest%03d");
+            case "maintenance" -> {
+                // Housers during maintenance: every request should be rejected quickly, before any MQTT work
+                String knowledgerToken = login("ltknowledger");
+                post("/maintenance/activate", knowledgerToken);
+                try {
+                    yield run(scenario, "lthouser%03d");
+                } finally {
+                    post("/maintenance/deactivate", knowledgerToken);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    private Result run(String scenario, String usernameFormat) throws Exception {
+        System.out.println("[LOADTEST] " + scenario + ": logging in " + users + " users");
+        List<String> tokens = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            tokens.add(login(String.format(usernameFormat, i)));
+        }
+
+        System.out.println("[LOADTEST] " + scenario + ": running for " + durationSeconds + "s");
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (String token : tokens) {
+            futures.add(pool.submit(() -> {
+                Worker worker = new Worker();
+                while (System.nanoTime() < deadline) {
+                    long sent = System.nanoTime();
+                    int status;
+                    try {
+                        status = post("/door", token).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    worker.record(System.nanoTime() - sent, status);
+                    Thread.sleep(thinkMillis);
+                }
+                return worker;
+            }));
+        }
+
+        Result result = new Result(scenario);
+        for (Future<Worker> future : futures) {
+            result.merge(future.get());
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        pool.shutdown();
+        return result;
+    }
+
+    private String login(String username) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(
+                "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Login failed for " + username + " (" + response.statusCode()
+                + "), was the backend started with the loadtest profile?");
+        }
+        return matcher.group(1);
+    }
+
+    private HttpResponse<String> post(String path, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Authorization", "Bearer " + token)
+            .header("Content-Type", "application/json")
+            .timeout(Duration.ofSeconds(30))
+            .POST(HttpRequest.BodyPublishers.ofString("{}"))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Per-thread samples, merged once the scenario is over
+    private static class Worker {
+        private long[] latencies = new long[64];
+        private int count;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        void record(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+    }
+
+    private static class Result {
+        private final String scenario;
+        private long[] latencies = new long[0];
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+        private long elapsedNanos;
+
+        Result(String scenario) {
+            this.scenario = scenario;
+        }
+
+        void merge(Worker worker) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + worker.count);
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            worker.statuses.forEach((status, count) -> statuses.merge(status, count, Integer::sum));
+        }
+
+        String summary() {
+            Arrays.sort(latencies);
+            int errors = statuses.entrySet().stream()
+                .filter(e -> e.getKey() < 200 || e.getKey() >= 300)
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+            double seconds = elapsedNanos / 1e9;
+            return String.format(Locale.ROOT, "%-12s %8d %9.1f %7.1f%% %9.1f %9.1f %9.1f %9.1f  %s",
+                scenario, latencies.length, latencies.length / seconds,
+                latencies.length == 0 ? 0.0 : 100.0 * errors / latencies.length,
+                percentile(0.50), percentile(0.90), percentile(0.99), percentile(1.0), statuses);
+        }
+
+        private double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.operas.config;
+
+import com.operas.model.GuestStatus;
+import com.operas.model.Party;
+import com.operas.model.User;
+import com.operas.repository.PartyRepository;
+import com.operas.repository.UserRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds the accounts used by the door load test (src/loadtest): one knowledger, N housers and
+ * N guests invited to a party that is in progress for the next day. Safe to run repeatedly.
+ */
+@Component
+@Profile("loadtest")
+public class LoadTestDataInitializer implements CommandLineRunner {
+
+    private static final String PARTY_NAME = "Load test party";
+
+    @Value("${loadtest.users:100}")
+    private int users;
+
+    @Value("${loadtest.password:loadtest}")
+    private String password;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PartyRepository partyRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        String encodedPassword = passwordEncoder.encode(password);
+
+        User knowledger = findOrCreate("ltknowledger", User.UserType.KNOWLEDGER, encodedPassword);
+        List<User> guests = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            findOrCreate(String.format("lthouser%03d", i), User.UserType.HOUSER, encodedPassword);
+            guests.add(findOrCreate(String.format("ltguest%03d", i), User.UserType.GUEST, encodedPassword));
+        }
+
+        // Keep the party in progress for the whole run so guests are allowed to open the door
+        LocalDateTime now = LocalDateTime.now();
+        Party party = partyRepository.findByName(PARTY_NAME).orElseGet(() -> {
+            Party created = new Party();
+            created.setName(PARTY_NAME);
+            created.setHost(knowledger);
+            created.setCreatedAt(now);
+            created.setType(Party.PartyType.HOUSE_PARTY);
+            created.getRooms().add(Party.Room.LIVING_ROOM);
+            return created;
+        });
+        party.setDateTime(now.minusHours(1));
+        party.setEndDateTime(now.plusDays(1));
+        party.setStatus(Party.PartyStatus.IN_PROGRESS);
+
+        for (User guest : guests) {
+            boolean invited = party.getGuests().stream().anyMatch(gs -> gs.getUser().getId().equals(guest.getId()));
+            if (!invited) {
+                party.getGuests().add(new GuestStatus(null, party, guest, GuestStatus.Status.GOING, now));
+            }
+        }
+        partyRepository.save(party);
+
+        System.out.println("[LOADTEST] Seeded " + users + " housers, " + users + " guests and party '" + PARTY_NAME + "'");
+    }
+
+    private User findOrCreate(String username, User.UserType type, String encodedPassword) {
+        return userRepository.findByUsername(username).orElseGet(() -> {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(encodedPassword);
+            user.setType(type);
+            return userRepository.save(user);
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.operas.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+// HTTP client for OSRM: a small keep-alive pool with strict timeouts so a slow routing server cannot hold door opens
+@Configuration
+public class RoutingHttpConfig {
+
+    @Value("${routing.http.max-connections:8}")
+    private int maxConnections;
+
+    @Value("${routing.http.connect-timeout-ms:500}")
+    private long connectTimeoutMs;
+
+    @Value("${routing.http.read-timeout-ms:2000}")
+    private long readTimeoutMs;
+
+    // How long to wait for a free pooled connection before giving up
+    @Value("${routing.http.pool-timeout-ms:200}")
+    private long poolTimeoutMs;
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient osrmHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate osrmRestTemplate(CloseableHttpClient osrmHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(osrmHttpClient));
+    }
+}
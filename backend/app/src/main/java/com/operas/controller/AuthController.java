@@ -60,7 +60,7 @@ public class AuthController {
         
         userService.registerUser(user, authRequest.getOnesignalId());
 
-        logService.createLog(user.getId(), new Log("User registered: " + user.getUsername(), user, "REGISTRATION"));
+        logService.createLog(user.getId(), new Log("User registered: " + user.getUsername(), user, Log.LogType.REGISTRATION));
         
         notificationService.sendWelcomeNotification(user);
         
@@ -85,7 +85,7 @@ public class AuthController {
                     .orElseThrow(() -> new UserNotFoundException("User not found: " + authRequest.getUsername()));
             }
 
-            logService.createLog(user.getId(), new Log("User logged in: " + authRequest.getUsername(), user, "LOGIN"));
+            logService.createLog(user.getId(), new Log("User logged in: " + authRequest.getUsername(), user, Log.LogType.LOGIN));
             
             return ResponseEntity.ok(new AuthResponse(token, UserDto.fromEntity(user)));
         } catch (BadCredentialsException e) {
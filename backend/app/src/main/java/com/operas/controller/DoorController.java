@@ -8,10 +8,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
 import java.util.Map;
+import com.operas.dto.EnvironmentSample;
+import com.operas.dto.PingSample;
 import com.operas.exceptions.DoorPingException;
 import com.operas.security.CustomUserDetails;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import com.operas.service.DoorService;
+import com.operas.service.DoorTraceService;
 import com.operas.service.KnowledgerService;
 import com.operas.service.ArduinoDataService;
 import com.operas.service.DoorbellMqttService;
@@ -36,6 +39,9 @@ public class DoorController {
 
     @Autowired
     private ArduinoDataService arduinoDataService;
+
+    @Autowired
+    private DoorTraceService doorTraceService;
     
     // MQTT
     private final DoorbellMqttService doorbellMqttService;
@@ -101,18 +107,11 @@ public class DoorController {
 
     @GetMapping("/ping")
     public ResponseEntity<?> ping(@AuthenticationPrincipal CustomUserDetails userDetails) {
-        Map<String, Object> cachedData = arduinoDataService.getPingData();
-
-        if (cachedData != null) {
-            long lastUpdated = (long) cachedData.get("last_updated");
-            long elapsedSeconds = (System.currentTimeMillis() - lastUpdated) / 1000;
+        PingSample sample = arduinoDataService.getPingData();
 
-            long days = ((Number) cachedData.get("uptime_days")).longValue();
-            long hours = ((Number) cachedData.get("uptime_hours")).longValue();
-            long minutes = ((Number) cachedData.get("uptime_minutes")).longValue();
-            long seconds = ((Number) cachedData.get("uptime_seconds")).longValue();
-
-            long totalSeconds = (days * 86400) + (hours * 3600) + (minutes * 60) + seconds + elapsedSeconds;
+        if (sample != null) {
+            long elapsedSeconds = (System.currentTimeMillis() - sample.receivedAt()) / 1000;
+            long totalSeconds = sample.uptimeTotalSeconds() + elapsedSeconds;
 
             long newDays = totalSeconds / 86400;
             long newHours = (totalSeconds % 86400) / 3600;
@@ -121,7 +120,7 @@ public class DoorController {
 
             Map<String, Object> result = Map.of(
                 "status", "online",
-                "ping", cachedData.get("ping"),
+                "ping", sample.ping(),
                 "uptime_days", newDays,
                 "uptime_hours", newHours,
                 "uptime_minutes", newMinutes,
@@ -135,7 +134,7 @@ public class DoorController {
 
     @GetMapping("/environment")
     public ResponseEntity<?> environment(@AuthenticationPrincipal CustomUserDetails userDetails) {
-        Map<String, Object> data = arduinoDataService.getEnvironmentData();
+        EnvironmentSample data = arduinoDataService.getEnvironmentData();
         if (data != null) {
             return ResponseEntity.ok(data);
         } else {
@@ -156,4 +155,21 @@ public class DoorController {
             throw new DoorPingException("Error checking device status via MQTT: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/traces")
+    public ResponseEntity<?> traces(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String username) {
+        return ResponseEntity.ok(doorTraceService.getRecentTraces(userDetails.getUser(), limit, username));
+    }
+
+    @GetMapping("/traces/{traceId}")
+    public ResponseEntity<?> trace(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @PathVariable String traceId) {
+        return doorTraceService.getTrace(userDetails.getUser(), traceId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Trace not found")));
+    }
+}
@@ -3,10 +3,20 @@ package com.operas.service;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.operas.model.DeviceStatusRun;
+import com.operas.repository.DeviceStatusRunRepository;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Service
@@ -19,17 +29,44 @@ public class DoorbellMqttService {
     private String MQTT_USERNAME;
 
     // MQTT broker configuration
-    private static final String MQTT_BROKER = "tcp://10.0.0.33:1883";
+    @Value("${mqtt.broker:tcp://10.0.0.33:1883}")
+    private String MQTT_BROKER;
+
     private static final String TOPIC_STATUS = "doorbell/online/status";
 
     // Device considered offline if no heartbeat received within this time (ms)
     private static final long TIMEOUT_MS = 15_000;
 
+    // Knowledgers are only alerted about outages lasting at least this long (ms)
+    private static final long OFFLINE_ALERT_DELAY_MS = 60_000;
+
     // Tracks last received heartbeat timestamp (epoch millis)
     private final AtomicLong lastHeartbeat = new AtomicLong(0);
 
+    // First heartbeat after a gap, i.e. when the current online period began (epoch millis)
+    private final AtomicLong onlineSince = new AtomicLong(0);
+
+    private final long startedAt = Instant.now().toEpochMilli();
+
+    // Run currently being recorded, only touched by checkStatus and shutdown
+    private DeviceStatusRun currentRun;
+    private long currentRunStart;
+    private boolean offlineAlertSent;
+
     private MqttClient mqttClient;
 
+    @Autowired
+    private DeviceStatusRunRepository deviceStatusRunRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
     public DoorbellMqttService() {
         // The constructor is kept for Spring to instantiate the bean.
         // Initialization is moved to the init() method.
@@ -46,10 +83,16 @@ public class DoorbellMqttService {
 
         mqttClient.connect(options);
 
+        Counter heartbeats = meterRegistry.counter("mqtt.messages.received", "topic", TOPIC_STATUS);
         mqttClient.subscribe(TOPIC_STATUS, (topic, message) -> {
+            heartbeats.increment();
             String payload = new String(message.getPayload());
             System.out.println("[MQTT] Heartbeat received: " + payload);
-            lastHeartbeat.set(Instant.now().toEpochMilli());
+            long now = Instant.now().toEpochMilli();
+            long previous = lastHeartbeat.getAndSet(now);
+            if (now - previous > TIMEOUT_MS) {
+                onlineSince.set(now);
+            }
         });
 
         System.out.println("[MQTT] Connected and subscribed to topic: " + TOPIC_STATUS);
@@ -63,4 +106,100 @@ public class DoorbellMqttService {
         long last = lastHeartbeat.get();
         return (now - last) <= TIMEOUT_MS;
     }
+
+    /**
+     * Records online/offline transitions as runs; heartbeats themselves never touch the database.
+     * Every replica tracks the heartbeats, but only the scheduler leader records runs and alerts.
+     */
+    @Scheduled(fixedDelay = 5_000)
+    public void checkStatus() {
+        long now = Instant.now().toEpochMilli();
+        if (!leaderLeaseService.isLeader()) {
+            if (currentRun != null) {
+                // Lost the lease, the new leader continues from here
+                closeCurrentRun(now);
+                currentRun = null;
+                offlineAlertSent = false;
+            }
+            return;
+        }
+        if (now - startedAt < TIMEOUT_MS) {
+            return; // Give the device a chance to send its first heartbeat
+        }
+
+        DeviceStatusRun.Status status = isDeviceOnline() ? DeviceStatusRun.Status.ONLINE : DeviceStatusRun.Status.OFFLINE;
+        if (currentRun == null || currentRun.getStatus() != status) {
+            // Offline from the last heartbeat seen, online from the first heartbeat after the gap
+            long changedAt = status == DeviceStatusRun.Status.ONLINE ? onlineSince.get() : lastHeartbeat.get();
+            changedAt = Math.max(changedAt, Math.max(currentRunStart, startedAt));
+            if (currentRun == null) {
+                // Taking over: runs left open by a crashed leader or an unclean shutdown end where ours begins
+                closeOrphanedRuns(toLocalDateTime(changedAt));
+            }
+            transition(status, changedAt);
+        }
+
+        if (status == DeviceStatusRun.Status.OFFLINE && !offlineAlertSent && now - currentRunStart >= OFFLINE_ALERT_DELAY_MS) {
+            offlineAlertSent = true;
+            try {
+                notificationService.sendDeviceOfflineNotification();
+            } catch (Exception e) {
+                System.err.println("Failed to send device offline notification: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (currentRun != null) {
+            closeCurrentRun(Instant.now().toEpochMilli());
+        }
+    }
+
+    private void transition(DeviceStatusRun.Status status, long changedAt) {
+        if (currentRun != null) {
+            closeCurrentRun(changedAt);
+            if (offlineAlertSent) {
+                offlineAlertSent = false;
+                try {
+                    notificationService.sendDeviceBackOnlineNotification((changedAt - currentRunStart) / 1000);
+                } catch (Exception e) {
+                    System.err.println("Failed to send device online notification: " + e.getMessage());
+                }
+            }
+        }
+
+        System.out.println("[MQTT] Doorbell device is now " + status);
+        currentRun = new DeviceStatusRun(status, toLocalDateTime(changedAt));
+        currentRunStart = changedAt;
+        try {
+            currentRun = deviceStatusRunRepository.save(currentRun);
+        } catch (Exception e) {
+            System.err.println("Failed to record device status: " + e.getMessage());
+        }
+    }
+
+    private void closeCurrentRun(long endedAt) {
+        currentRun.setEndedAt(toLocalDateTime(endedAt));
+        try {
+            deviceStatusRunRepository.save(currentRun);
+        } catch (Exception e) {
+            System.err.println("Failed to record device status: " + e.getMessage());
+        }
+    }
+
+    private void closeOrphanedRuns(LocalDateTime endedAt) {
+        try {
+            for (DeviceStatusRun run : deviceStatusRunRepository.findByEndedAtIsNull()) {
+                run.setEndedAt(endedAt.isBefore(run.getStartedAt()) ? run.getStartedAt() : endedAt);
+                deviceStatusRunRepository.save(run);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to close open device status runs: " + e.getMessage());
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
 }
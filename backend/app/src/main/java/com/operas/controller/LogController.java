@@ -31,6 +31,39 @@ public class LogController {
         return ResponseEntity.ok(logs);
     }
     
+    @GetMapping("/search")
+    public ResponseEntity<Page<LogDto>> searchLogs(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        Page<LogDto> logs = logService.searchLogs(userDetails.getUser(), query, page, size);
+        return ResponseEntity.ok(logs);
+    }
+    
+    @GetMapping("/party/{partyId}")
+    public ResponseEntity<Page<LogDto>> getPartyLogs(
+            @PathVariable Long partyId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        Page<LogDto> logs = logService.getPartyLogs(userDetails.getUser(), partyId, page, size);
+        return ResponseEntity.ok(logs);
+    }
+
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<Page<LogDto>> getUserLogs(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        Page<LogDto> logs = logService.getUserLogs(userDetails.getUser(), userId, page, size);
+        return ResponseEntity.ok(logs);
+    }
+    
     @GetMapping("/count")
     public ResponseEntity<Long> getTotalLogsCount(@AuthenticationPrincipal CustomUserDetails userDetails) {
         long count = logService.getTotalLogsCount(userDetails.getUser());
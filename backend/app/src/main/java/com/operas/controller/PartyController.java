@@ -85,6 +85,16 @@ public class PartyController {
         return ResponseEntity.noContent().build();
     }
 
+    @PatchMapping("/{partyId}/guests")
+    public ResponseEntity<Map<String, Integer>> updateGuests(
+            @PathVariable Long partyId,
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestBody Map<String, List<Long>> body
+    ) {
+        Map<String, Integer> result = partyService.updateGuests(partyId, userDetails.getUser(), body.get("add"), body.get("remove"));
+        return ResponseEntity.ok(result);
+    }
+
     @DeleteMapping("/{partyId}/guests/{guestUserId}")
     public ResponseEntity<Void> removeGuestFromParty(
             @PathVariable Long partyId,
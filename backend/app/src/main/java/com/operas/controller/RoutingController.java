@@ -7,12 +7,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/routing")
 public class RoutingController {
+
+    // OSRM table requests grow with the number of origins, keep one request bounded
+    private static final int MAX_BATCH_ORIGINS = 100;
     
     @Autowired
     private RoutingService routingService;
@@ -41,4 +46,47 @@ public class RoutingController {
             return ResponseEntity.internalServerError().body("Error calculating travel time: " + e.getMessage());
         }
     }
+
+    @PostMapping("/travel-times")
+    public ResponseEntity<?> getTravelTimes(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestBody Map<String, Object> body) {
+
+        if (!(body.get("origins") instanceof List<?> origins) || origins.isEmpty()) {
+            return ResponseEntity.badRequest().body("A non-empty list of origins is required");
+        }
+        if (origins.size() > MAX_BATCH_ORIGINS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_BATCH_ORIGINS + " origins per request");
+        }
+
+        double[] lats = new double[origins.size()];
+        double[] lngs = new double[origins.size()];
+        for (int i = 0; i < origins.size(); i++) {
+            if (!(origins.get(i) instanceof Map<?, ?> origin)
+                    || !(origin.get("latitude") instanceof Number latitude)
+                    || !(origin.get("longitude") instanceof Number longitude)) {
+                return ResponseEntity.badRequest().body("Latitude and longitude are required for every origin");
+            }
+            lats[i] = latitude.doubleValue();
+            lngs[i] = longitude.doubleValue();
+        }
+
+        try {
+            Double[] travelTimes = routingService.getTravelTimes(lats, lngs);
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (int i = 0; i < travelTimes.length; i++) {
+                Map<?, ?> origin = (Map<?, ?>) origins.get(i);
+                Map<String, Object> result = new HashMap<>();
+                // Lets the caller match results to its own users
+                result.put("id", origin.get("id"));
+                result.put("travelTimeSeconds", travelTimes[i]);
+                result.put("travelTimeMinutes", travelTimes[i] == null ? null : Math.round(travelTimes[i] / 60.0 * 100.0) / 100.0);
+                results.add(result);
+            }
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error calculating travel times: " + e.getMessage());
+        }
+    }
 }
@@ -1,15 +1,20 @@
 package com.operas.controller;
 
-import com.operas.model.EnvironmentData;
+import com.operas.dto.EnvironmentPointDto;
+import com.operas.dto.MetricPointDto;
+import com.operas.security.CustomUserDetails;
 import com.operas.service.StatisticsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/statistics")
@@ -19,9 +24,40 @@ public class StatisticsController {
     private StatisticsService statisticsService;
 
     @GetMapping("/environment")
-    public ResponseEntity<List<EnvironmentData>> getEnvironmentData(
+    public ResponseEntity<List<EnvironmentPointDto>> getEnvironmentData(
             @RequestParam(defaultValue = "24") int hours) {
-        List<EnvironmentData> data = statisticsService.getRecentEnvironmentData(hours);
+        List<EnvironmentPointDto> data = statisticsService.getRecentEnvironmentData(hours);
         return ResponseEntity.ok(data);
     }
+
+    @GetMapping("/environment/live")
+    public ResponseEntity<List<EnvironmentPointDto>> getLiveEnvironmentData(
+            @RequestParam(defaultValue = "30") int minutes) {
+        List<EnvironmentPointDto> data = statisticsService.getLiveEnvironmentData(minutes);
+        return ResponseEntity.ok(data);
+    }
+
+    @GetMapping("/environment/{metric}")
+    public ResponseEntity<List<MetricPointDto>> getDownsampledEnvironmentData(
+            @PathVariable String metric,
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "200") int points) {
+        List<MetricPointDto> data = statisticsService.getDownsampledEnvironmentData(metric, hours, points);
+        return ResponseEntity.ok(data);
+    }
+
+    @GetMapping("/device-availability")
+    public ResponseEntity<Map<String, Object>> getDeviceAvailability(
+            @RequestParam(defaultValue = "7") int days) {
+        Map<String, Object> availability = statisticsService.getDeviceAvailability(days);
+        return ResponseEntity.ok(availability);
+    }
+
+    @GetMapping("/door")
+    public ResponseEntity<Map<String, Object>> getDoorStatistics(
+            @RequestParam(defaultValue = "30") int days,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        Map<String, Object> statistics = statisticsService.getDoorStatistics(userDetails.getUser(), days);
+        return ResponseEntity.ok(statistics);
+    }
 }
@@ -0,0 +1,45 @@
+package com.operas.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.operas.model.User;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// One door open request with the time spent in each phase, built by the request thread
+@Getter
+public class DoorOpenTrace {
+
+    public record Span(String phase, double startMs, double durationMs) {}
+
+    private final String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    private final Long userId;
+    private final String username;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final List<Span> spans = new ArrayList<>();
+    private String outcome;
+    private String error;
+    private double totalMs;
+
+    @JsonIgnore
+    private final long startNanos = System.nanoTime();
+
+    public DoorOpenTrace(User user) {
+        this.userId = user.getId();
+        this.username = user.getUsername();
+    }
+
+    public void addSpan(String phase, long phaseStartNanos, long phaseEndNanos) {
+        spans.add(new Span(phase, (phaseStartNanos - startNanos) / 1e6, (phaseEndNanos - phaseStartNanos) / 1e6));
+    }
+
+    public void finish(String outcome, String error) {
+        this.outcome = outcome;
+        this.error = error;
+        this.totalMs = (System.nanoTime() - startNanos) / 1e6;
+    }
+}
@@ -0,0 +1,69 @@
+package com.operas.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.operas.model.EnvironmentRollup;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Same field names as EnvironmentData so chart clients can consume either
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EnvironmentPointDto {
+    private LocalDateTime createdAt;
+    private Double temperature;
+    private Double humidity;
+    private Double pressure;
+    private Double altitude;
+    private Double airQualityIndex;
+    private Double tvocPpb;
+    private Double eco2Ppm;
+    private Long samples;
+    private EnvironmentPointDto min;
+    private EnvironmentPointDto max;
+
+    public static EnvironmentPointDto fromRollup(EnvironmentRollup rollup) {
+        long count = rollup.getSampleCount();
+
+        EnvironmentPointDto dto = new EnvironmentPointDto();
+        dto.createdAt = rollup.getBucketStart();
+        dto.samples = count;
+        dto.temperature = average(rollup.getTemperatureSum(), count);
+        dto.humidity = average(rollup.getHumiditySum(), count);
+        dto.pressure = average(rollup.getPressureSum(), count);
+        dto.altitude = average(rollup.getAltitudeSum(), count);
+        dto.airQualityIndex = average(rollup.getAirQualityIndexSum(), count);
+        dto.tvocPpb = average(rollup.getTvocPpbSum(), count);
+        dto.eco2Ppm = average(rollup.getEco2PpmSum(), count);
+
+        dto.min = new EnvironmentPointDto();
+        dto.min.temperature = rollup.getTemperatureMin();
+        dto.min.humidity = rollup.getHumidityMin();
+        dto.min.pressure = rollup.getPressureMin();
+        dto.min.altitude = rollup.getAltitudeMin();
+        dto.min.airQualityIndex = rollup.getAirQualityIndexMin();
+        dto.min.tvocPpb = rollup.getTvocPpbMin();
+        dto.min.eco2Ppm = rollup.getEco2PpmMin();
+
+        dto.max = new EnvironmentPointDto();
+        dto.max.temperature = rollup.getTemperatureMax();
+        dto.max.humidity = rollup.getHumidityMax();
+        dto.max.pressure = rollup.getPressureMax();
+        dto.max.altitude = rollup.getAltitudeMax();
+        dto.max.airQualityIndex = rollup.getAirQualityIndexMax();
+        dto.max.tvocPpb = rollup.getTvocPpbMax();
+        dto.max.eco2Ppm = rollup.getEco2PpmMax();
+        return dto;
+    }
+
+    private static Double average(Double sum, long count) {
+        return sum == null || count == 0 ? null : sum / count;
+    }
+}
@@ -0,0 +1,16 @@
+package com.operas.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Latest doorbell/environment message, field names as sent by the device
+public record EnvironmentSample(
+    @JsonProperty("temperature") double temperature,
+    @JsonProperty("humidity") double humidity,
+    @JsonProperty("pressure") double pressure,
+    @JsonProperty("altitude") double altitude,
+    @JsonProperty("air_quality_index") int airQualityIndex,
+    @JsonProperty("tvoc_ppb") int tvocPpb,
+    @JsonProperty("eco2_ppm") int eco2Ppm,
+    @JsonIgnore long receivedAt
+) {}
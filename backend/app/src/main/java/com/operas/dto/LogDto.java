@@ -16,6 +16,11 @@ public class LogDto {
     private String message;
     private String username;  // User who performed the action
     private String logType;   // Type of log (INFO, ERROR, etc.)
+    private Long targetUserId;
+    private Long partyId;
+    private String oldValue;
+    private String newValue;
+    private String traceId;
     private LocalDateTime timestamp;
 
     public static LogDto fromEntity(Log log) {
@@ -23,7 +28,12 @@ public class LogDto {
         dto.id = log.getId();
         dto.message = log.getMessage();
         dto.username = log.getUser().getUsername();
-        dto.logType = log.getLogType();
+        dto.logType = log.getLogType().name();
+        dto.targetUserId = log.getTargetUserId();
+        dto.partyId = log.getPartyId();
+        dto.oldValue = log.getOldValue();
+        dto.newValue = log.getNewValue();
+        dto.traceId = log.getTraceId();
         dto.timestamp = log.getTimestamp();
         return dto;
     }
@@ -0,0 +1,17 @@
+package com.operas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class MetricPointDto {
+    private LocalDateTime createdAt;
+    private Double value;
+}
@@ -0,0 +1,18 @@
+package com.operas.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Latest doorbell/ping message, field names as sent by the device
+public record PingSample(
+    @JsonProperty("ping") double ping,
+    @JsonProperty("uptime_days") long uptimeDays,
+    @JsonProperty("uptime_hours") long uptimeHours,
+    @JsonProperty("uptime_minutes") long uptimeMinutes,
+    @JsonProperty("uptime_seconds") long uptimeSeconds,
+    @JsonIgnore long receivedAt
+) {
+    public long uptimeTotalSeconds() {
+        return uptimeDays * 86400 + uptimeHours * 3600 + uptimeMinutes * 60 + uptimeSeconds;
+    }
+}
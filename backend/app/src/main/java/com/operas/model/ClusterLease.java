@@ -0,0 +1,30 @@
+package com.operas.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Written only through conditional updates (LeaderLeaseService, DoorService), the entity just defines the table
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "cluster_leases")
+public class ClusterLease {
+
+    @Id
+    @Column(name = "lease_name", length = 64)
+    private String name;
+
+    // Current holder: a per-process id for the scheduler lease, a command id for a door
+    @Column(nullable = false, length = 128)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,47 @@
+package com.operas.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// One row per uninterrupted online or offline period of the doorbell device
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "device_status_runs", indexes = {
+    @Index(name = "idx_device_status_runs_started_at", columnList = "started_at"),
+    @Index(name = "idx_device_status_runs_ended_at", columnList = "ended_at")
+})
+public class DeviceStatusRun {
+
+    public enum Status {
+        ONLINE,
+        OFFLINE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    // Null while the run is still going on
+    @Column(name = "ended_at")
+    private LocalDateTime endedAt;
+
+    public DeviceStatusRun(Status status, LocalDateTime startedAt) {
+        this.status = status;
+        this.startedAt = startedAt;
+    }
+}
@@ -0,0 +1,47 @@
+package com.operas.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "door_activity_hourly", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_door_activity_bucket_user", columnNames = {"bucket_start", "user_id"})
+})
+public class DoorActivityRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Start of the hour this row aggregates
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Successful outer door opens
+    @Column(nullable = false)
+    private long opens = 0;
+
+    // Successful inner door opens (multiple door open)
+    @Column(name = "inner_opens", nullable = false)
+    private long innerOpens = 0;
+
+    // Device answered with a failure (DOOR_OPEN_FAILED)
+    @Column(nullable = false)
+    private long failures = 0;
+
+    // No answer or MQTT error (DOOR_OPEN_ERROR)
+    @Column(nullable = false)
+    private long errors = 0;
+}
@@ -0,0 +1,105 @@
+package com.operas.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "environment_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_environment_rollup_bucket", columnNames = {"resolution", "bucket_start"})
+})
+public class EnvironmentRollup {
+    public enum Resolution {
+        MINUTE,
+        HOUR,
+        DAY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Resolution resolution;
+
+    // Start of the minute/hour/day this row aggregates
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    // Sum, min and max per metric; the average is sum / sampleCount
+
+    @Column(name = "temperature_sum")
+    private Double temperatureSum;
+
+    @Column(name = "temperature_min")
+    private Double temperatureMin;
+
+    @Column(name = "temperature_max")
+    private Double temperatureMax;
+
+    @Column(name = "humidity_sum")
+    private Double humiditySum;
+
+    @Column(name = "humidity_min")
+    private Double humidityMin;
+
+    @Column(name = "humidity_max")
+    private Double humidityMax;
+
+    @Column(name = "pressure_sum")
+    private Double pressureSum;
+
+    @Column(name = "pressure_min")
+    private Double pressureMin;
+
+    @Column(name = "pressure_max")
+    private Double pressureMax;
+
+    @Column(name = "altitude_sum")
+    private Double altitudeSum;
+
+    @Column(name = "altitude_min")
+    private Double altitudeMin;
+
+    @Column(name = "altitude_max")
+    private Double altitudeMax;
+
+    @Column(name = "air_quality_index_sum")
+    private Double airQualityIndexSum;
+
+    @Column(name = "air_quality_index_min")
+    private Double airQualityIndexMin;
+
+    @Column(name = "air_quality_index_max")
+    private Double airQualityIndexMax;
+
+    @Column(name = "tvoc_ppb_sum")
+    private Double tvocPpbSum;
+
+    @Column(name = "tvoc_ppb_min")
+    private Double tvocPpbMin;
+
+    @Column(name = "tvoc_ppb_max")
+    private Double tvocPpbMax;
+
+    @Column(name = "eco2_ppm_sum")
+    private Double eco2PpmSum;
+
+    @Column(name = "eco2_ppm_min")
+    private Double eco2PpmMin;
+
+    @Column(name = "eco2_ppm_max")
+    private Double eco2PpmMax;
+}
@@ -2,9 +2,12 @@ package com.operas.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -22,8 +25,36 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "logs")
+@Table(name = "logs", indexes = {
+    @Index(name = "idx_logs_user_type_timestamp", columnList = "user_id, log_type, timestamp"),
+    @Index(name = "idx_logs_target_user_id", columnList = "target_user_id"),
+    @Index(name = "idx_logs_party_id", columnList = "party_id"),
+    @Index(name = "idx_logs_trace_id", columnList = "trace_id")
+})
 public class Log {
+    public enum LogType {
+        INFO,
+        LOGIN,
+        REGISTRATION,
+        REGISTRATION_MANAGEMENT,
+        USER_MANAGEMENT,
+        USER_STATUS,
+        USER_DELETION,
+        PASSWORD_RESET,
+        MAINTENANCE,
+        PARTY_CREATED,
+        PARTY_DELETED,
+        PARTY_STATUS_CHANGED,
+        PARTY_SCHEDULE_CHANGED,
+        PARTY_ROOMS_CHANGED,
+        GUEST_ADDED,
+        GUEST_REMOVED,
+        GUEST_STATUS_CHANGED,
+        DOOR_OPEN,
+        DOOR_OPEN_FAILED,
+        DOOR_OPEN_ERROR
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -33,14 +64,33 @@ public class Log {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
+    // Human readable snapshot of the event (names as they were at the time, full-text indexed)
     @NotBlank(message = "Message is required")
     @Size(min = 4, message = "Message must be at least 4 characters")
     @Column(nullable = false)
     private String message;
 
-    // Add a logtype field
-    @Column(nullable = false)
-    private String logType = "INFO"; // Default log type
+    @Enumerated(EnumType.STRING)
+    @Column(name = "log_type", nullable = false)
+    private LogType logType = LogType.INFO; // Default log type
+
+    // User the action was performed on, if any (plain id so logs survive the target's deletion)
+    @Column(name = "target_user_id")
+    private Long targetUserId;
+
+    // Party the action concerns, if any (plain id so logs survive the party's deletion)
+    @Column(name = "party_id")
+    private Long partyId;
+
+    @Column(name = "old_value")
+    private String oldValue;
+
+    @Column(name = "new_value")
+    private String newValue;
+
+    // Door open trace this entry belongs to, see DoorTraceService
+    @Column(name = "trace_id", length = 32)
+    private String traceId;
     
     // Timestamp when the log was created
     @Column(nullable = false)
@@ -51,9 +101,30 @@ public class Log {
         this.user = user;
     }
 
-    public Log(String message, User user, String logType) {
+    public Log(String message, User user, LogType logType) {
         this.message = message;
         this.user = user;
         this.logType = logType;
     }
-}
\ No newline at end of file
+
+    public Log withTarget(Long targetUserId) {
+        this.targetUserId = targetUserId;
+        return this;
+    }
+
+    public Log withParty(Long partyId) {
+        this.partyId = partyId;
+        return this;
+    }
+
+    public Log withTrace(String traceId) {
+        this.traceId = traceId;
+        return this;
+    }
+
+    public Log withChange(Object oldValue, Object newValue) {
+        this.oldValue = oldValue != null ? oldValue.toString() : null;
+        this.newValue = newValue != null ? newValue.toString() : null;
+        return this;
+    }
+}
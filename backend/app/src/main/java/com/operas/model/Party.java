@@ -104,7 +104,7 @@ public class Party {
     @NotNull(message = "Party type cannot be null")
     private PartyType type;
 
-    // Reminder tracking fields
+    // Delivery state from before the party_reminders ledger, only read when its rows are first created
     @Column(name = "reminder_3_days_sent", nullable = false)
     private boolean reminder3DaysSent = false;
     
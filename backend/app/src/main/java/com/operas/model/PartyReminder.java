@@ -0,0 +1,87 @@
+package com.operas.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Delivery ledger: one row per party and reminder, written by PartyReminderService with conditional updates
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "party_reminders", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_party_reminders_party_type", columnNames = {"party_id", "reminder_type"})
+}, indexes = {
+    @Index(name = "idx_party_reminders_status_due", columnList = "status, due_at"),
+    @Index(name = "idx_party_reminders_claim_token", columnList = "claim_token")
+})
+public class PartyReminder {
+
+    public enum ReminderType {
+        THREE_DAYS("3_DAYS"),
+        TWENTY_FOUR_HOURS("24_HOURS"),
+        ONE_HOUR("1_HOUR"),
+        STARTING("STARTING"),
+        ENDING("ENDING");
+
+        // Reminder name used by NotificationService.sendPartyReminderNotification
+        private final String notificationKey;
+
+        ReminderType(String notificationKey) {
+            this.notificationKey = notificationKey;
+        }
+
+        public String getNotificationKey() {
+            return notificationKey;
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        SKIPPED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // No foreign key so deleting a party is not blocked; rows of deleted parties are skipped
+    @Column(name = "party_id", nullable = false)
+    private Long partyId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reminder_type", nullable = false, length = 20)
+    private ReminderType reminderType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+
+    // Sent from dueAt on; once expiresAt has passed unsent it is too late and the reminder is skipped
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Set by the claiming UPDATE, identifies the batch a worker owns
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    // Set right before the OneSignal call; a claim without it never reached the send and can be retried
+    @Column(name = "send_started_at")
+    private LocalDateTime sendStartedAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,32 @@
+package com.operas.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "system_settings")
+public class SystemSetting {
+
+    @Id
+    @Column(name = "setting_key", length = 64)
+    private String key;
+
+    @Column(name = "setting_value", nullable = false)
+    private String value;
+
+    // Bumped on every write so other instances can tell the settings changed
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,19 @@
+package com.operas.repository;
+
+import com.operas.model.DeviceStatusRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DeviceStatusRunRepository extends JpaRepository<DeviceStatusRun, Long> {
+
+    List<DeviceStatusRun> findByEndedAtIsNull();
+
+    @Query("SELECT r FROM DeviceStatusRun r WHERE r.endedAt IS NULL OR r.endedAt > :since ORDER BY r.startedAt ASC")
+    List<DeviceStatusRun> findOverlapping(@Param("since") LocalDateTime since);
+}
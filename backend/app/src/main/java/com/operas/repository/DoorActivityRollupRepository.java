@@ -0,0 +1,46 @@
+package com.operas.repository;
+
+import com.operas.model.DoorActivityRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DoorActivityRollupRepository extends JpaRepository<DoorActivityRollup, Long> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO door_activity_hourly (bucket_start, user_id, opens, inner_opens, failures, errors) "
+                 + "VALUES (:bucketStart, :userId, :opens, :innerOpens, :failures, :errors) "
+                 + "ON DUPLICATE KEY UPDATE opens = opens + VALUES(opens), inner_opens = inner_opens + VALUES(inner_opens), "
+                 + "failures = failures + VALUES(failures), errors = errors + VALUES(errors)",
+           nativeQuery = true)
+    void increment(@Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("userId") Long userId,
+                   @Param("opens") long opens,
+                   @Param("innerOpens") long innerOpens,
+                   @Param("failures") long failures,
+                   @Param("errors") long errors);
+
+    // [dayOfWeek (1 = Sunday), hourOfDay, opens, innerOpens, failures, errors]
+    @Query(value = "SELECT DAYOFWEEK(bucket_start), HOUR(bucket_start), SUM(opens), SUM(inner_opens), SUM(failures), SUM(errors) "
+                 + "FROM door_activity_hourly WHERE bucket_start >= :since "
+                 + "GROUP BY DAYOFWEEK(bucket_start), HOUR(bucket_start)",
+           nativeQuery = true)
+    List<Object[]> sumByDayOfWeekAndHour(@Param("since") LocalDateTime since);
+
+    // [userId, username, opens, innerOpens, failures, errors]
+    @Query(value = "SELECT r.user_id, u.username, SUM(r.opens), SUM(r.inner_opens), SUM(r.failures), SUM(r.errors) "
+                 + "FROM door_activity_hourly r LEFT JOIN users u ON u.id = r.user_id "
+                 + "WHERE r.bucket_start >= :since GROUP BY r.user_id, u.username",
+           nativeQuery = true)
+    List<Object[]> sumByUser(@Param("since") LocalDateTime since);
+
+    void deleteAllByUserId(Long userId);
+}
@@ -0,0 +1,23 @@
+package com.operas.repository;
+
+import com.operas.model.EnvironmentRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EnvironmentRollupRepository extends JpaRepository<EnvironmentRollup, Long> {
+    List<EnvironmentRollup> findByResolutionAndBucketStartGreaterThanEqualOrderByBucketStartAsc(EnvironmentRollup.Resolution resolution, LocalDateTime since);
+    boolean existsByResolution(EnvironmentRollup.Resolution resolution);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EnvironmentRollup r WHERE r.resolution = :resolution AND r.bucketStart < :before")
+    int deleteOlderThan(@Param("resolution") EnvironmentRollup.Resolution resolution, @Param("before") LocalDateTime before);
+}
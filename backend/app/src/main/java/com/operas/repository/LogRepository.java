@@ -4,6 +4,8 @@ import com.operas.model.Log;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -17,5 +19,16 @@ public interface LogRepository extends JpaRepository<Log, Long> {
     List<Log> findByUser_IdOrderByTimestampDesc(Long userId);
     void deleteAllByUser_Id(Long userId);
     Page<Log> findAllByOrderByTimestampDesc(Pageable pageable);
-    List<Log> findByUser_IdAndLogTypeAndTimestampAfter(Long userId, String logType, LocalDateTime timestamp);
+    List<Log> findByUser_IdAndLogTypeAndTimestampAfter(Long userId, Log.LogType logType, LocalDateTime timestamp);
+    Page<Log> findByPartyIdOrderByTimestampDesc(Long partyId, Pageable pageable);
+
+    @Query("SELECT l FROM Log l WHERE l.user.id = :userId OR l.targetUserId = :userId ORDER BY l.timestamp DESC")
+    Page<Log> findByActorOrTarget(@Param("userId") Long userId, Pageable pageable);
+
+    // Ranked search backed by the FULLTEXT index on logs.message (see LogService#createSearchIndex)
+    @Query(value = "SELECT * FROM logs WHERE MATCH(message) AGAINST(:query IN NATURAL LANGUAGE MODE) "
+                 + "ORDER BY MATCH(message) AGAINST(:query IN NATURAL LANGUAGE MODE) DESC, timestamp DESC",
+           countQuery = "SELECT COUNT(*) FROM logs WHERE MATCH(message) AGAINST(:query IN NATURAL LANGUAGE MODE)",
+           nativeQuery = true)
+    Page<Log> searchByMessage(@Param("query") String query, Pageable pageable);
 }
\ No newline at end of file
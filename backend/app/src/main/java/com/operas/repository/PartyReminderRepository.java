@@ -0,0 +1,13 @@
+package com.operas.repository;
+
+import com.operas.model.PartyReminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PartyReminderRepository extends JpaRepository<PartyReminder, Long> {
+
+    List<PartyReminder> findByClaimToken(String claimToken);
+}
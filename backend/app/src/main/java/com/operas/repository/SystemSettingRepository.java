@@ -0,0 +1,14 @@
+package com.operas.repository;
+
+import com.operas.model.SystemSetting;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SystemSettingRepository extends JpaRepository<SystemSetting, String> {
+
+    // Versions only grow and rows are never deleted, so the sum changes whenever any setting does
+    @Query("SELECT COALESCE(SUM(s.version), 0) FROM SystemSetting s")
+    long sumVersions();
+}
@@ -6,14 +6,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.annotation.Autowired;
 import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import com.operas.utils.JsonUtils;
-import com.operas.model.EnvironmentData;
-import com.operas.repository.EnvironmentDataRepository;
+import com.operas.dto.EnvironmentSample;
+import com.operas.dto.PingSample;
+import com.operas.utils.TelemetryDecoder;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Service
@@ -25,20 +24,37 @@ public class ArduinoDataService {
     @Value("${mqtt.username:}")
     private String MQTT_USERNAME;
 
-    private static final String MQTT_BROKER = "tcp://10.0.0.33:1883";
+    @Value("${mqtt.broker:tcp://10.0.0.33:1883}")
+    private String MQTT_BROKER;
+
+    // Each replica gets every environment sample on its own subscription for its in-memory state,
+    // and the replicas share one subscription so each sample is added to the rollups exactly once
+    @Value("${mqtt.shared-group:operas-backend}")
+    private String sharedGroup;
 
     private static final String TOPIC_PING = "doorbell/ping";
     private static final String TOPIC_ENVIRONMENT = "doorbell/environment";
 
-    private long lastSavedTime = 0;
-
-    private final AtomicReference<Map<String, Object>> cachedPingData = new AtomicReference<>();
-    private final AtomicReference<Map<String, Object>> cachedEnvironmentData = new AtomicReference<>();
+    // Immutable samples published to the HTTP readers
+    private final AtomicReference<PingSample> latestPing = new AtomicReference<>();
+    private final AtomicReference<EnvironmentSample> latestEnvironment = new AtomicReference<>();
 
     private MqttClient mqttClient;
 
+    // Separate client: Paho does not match "$share/..." filters to per-subscription listeners
+    private MqttClient sharedClient;
+
     @Autowired
-    private EnvironmentDataRepository environmentDataRepository;
+    private EnvironmentRollupService environmentRollupService;
+
+    @Autowired
+    private EnvironmentHistoryService environmentHistoryService;
+
+    @Autowired
+    private EnvironmentAlertService environmentAlertService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     public ArduinoDataService() {
         // Constructor left empty for Spring bean instantiation.
@@ -56,50 +72,84 @@ public class ArduinoDataService {
 
         mqttClient.connect(options);
 
+        Counter pingMessages = meterRegistry.counter("mqtt.messages.received", "topic", TOPIC_PING);
+        Counter environmentMessages = meterRegistry.counter("mqtt.messages.received", "topic", TOPIC_ENVIRONMENT);
+        Counter invalidPingMessages = meterRegistry.counter("mqtt.messages.invalid", "topic", TOPIC_PING);
+        Counter invalidEnvironmentMessages = meterRegistry.counter("mqtt.messages.invalid", "topic", TOPIC_ENVIRONMENT);
+
         // Subscribe to ping updates
         mqttClient.subscribe(TOPIC_PING, (topic, message) -> {
-            String payload = new String(message.getPayload(), StandardCharsets.UTF_8);
-            Map<String, Object> data = JsonUtils.parseJsonToMap(payload);
-            data.put("last_updated", System.currentTimeMillis());
-            System.out.println("[MQTT] Ping data received: " + data);
-            cachedPingData.set(new ConcurrentHashMap<>(data));
+            pingMessages.increment();
+            try {
+                PingSample sample = TelemetryDecoder.decodePing(message.getPayload(), System.currentTimeMillis());
+                latestPing.set(sample);
+            } catch (Exception e) {
+                invalidPingMessages.increment();
+                System.err.println("[MQTT] Invalid ping payload: " + e.getMessage());
+            }
         });
 
         // Subscribe to environment updates
         mqttClient.subscribe(TOPIC_ENVIRONMENT, (topic, message) -> {
-            String payload = new String(message.getPayload(), StandardCharsets.UTF_8);
-            Map<String, Object> data = JsonUtils.parseJsonToMap(payload);
-            System.out.println("[MQTT] Environment data received: " + data);
-            cachedEnvironmentData.set(new ConcurrentHashMap<>(data));
-
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastSavedTime >= 120000) { // Save every 2 minutes
-                saveEnvironmentData(data);
-                lastSavedTime = currentTime;
+            environmentMessages.increment();
+            EnvironmentSample sample;
+            try {
+                sample = TelemetryDecoder.decodeEnvironment(message.getPayload(), System.currentTimeMillis());
+            } catch (Exception e) {
+                invalidEnvironmentMessages.increment();
+                System.err.println("[MQTT] Invalid environment payload: " + e.getMessage());
+                return;
             }
+            latestEnvironment.set(sample);
+
+            // Every sample is kept at full resolution in memory; only the rollups reach the database
+            environmentHistoryService.record(sample);
+            environmentAlertService.record(sample);
         });
 
-        System.out.println("[MQTT] ArduinoDataService subscribed to topics: " + TOPIC_PING + ", " + TOPIC_ENVIRONMENT);
-    }
+        String sharedTopic = "$share/" + sharedGroup + "/" + TOPIC_ENVIRONMENT;
+        sharedClient = new MqttClient(MQTT_BROKER, MqttClient.generateClientId(), new MemoryPersistence());
+        sharedClient.setCallback(new MqttCallbackExtended() {
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                if (reconnect) {
+                    // A clean session loses its subscriptions on reconnect
+                    try {
+                        sharedClient.subscribe(sharedTopic);
+                    } catch (MqttException e) {
+                        System.err.println("[MQTT] Failed to resubscribe to " + sharedTopic + ": " + e.getMessage());
+                    }
+                }
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                try {
+                    environmentRollupService.record(TelemetryDecoder.decodeEnvironment(message.getPayload(), System.currentTimeMillis()));
+                } catch (Exception e) {
+                    // Already counted and logged by the per-replica subscription
+                }
+            }
+
+            @Override
+            public void connectionLost(Throwable cause) {
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        });
+        sharedClient.connect(options);
+        sharedClient.subscribe(sharedTopic);
 
-    private void saveEnvironmentData(Map<String, Object> data) {
-        EnvironmentData environmentData = new EnvironmentData();
-        environmentData.setTemperature(((Number) data.get("temperature")).doubleValue());
-        environmentData.setHumidity(((Number) data.get("humidity")).doubleValue());
-        environmentData.setPressure(((Number) data.get("pressure")).doubleValue());
-        environmentData.setAltitude(((Number) data.get("altitude")).doubleValue());
-        environmentData.setAirQualityIndex(((Number) data.get("air_quality_index")).intValue());
-        environmentData.setTvocPpb(((Number) data.get("tvoc_ppb")).intValue());
-        environmentData.setEco2Ppm(((Number) data.get("eco2_ppm")).intValue());
-
-        environmentDataRepository.save(environmentData);
+        System.out.println("[MQTT] ArduinoDataService subscribed to topics: " + TOPIC_PING + ", " + TOPIC_ENVIRONMENT + ", " + sharedTopic);
     }
 
-    public Map<String, Object> getPingData() {
-        return cachedPingData.get();
+    public PingSample getPingData() {
+        return latestPing.get();
     }
 
-    public Map<String, Object> getEnvironmentData() {
-        return cachedEnvironmentData.get();
+    public EnvironmentSample getEnvironmentData() {
+        return latestEnvironment.get();
     }
 }
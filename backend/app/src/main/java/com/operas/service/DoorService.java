@@ -4,28 +4,34 @@ import org.eclipse.paho.client.mqttv3.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import com.operas.dto.DoorOpenTrace;
 import com.operas.model.User;
 import com.operas.model.Party;
 import com.operas.model.Log;
-import com.operas.repository.PartyRepository;
 import com.operas.repository.LogRepository;
 import com.operas.exceptions.DoorOpenException;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class DoorService {
 
-    @Autowired
-    private PartyRepository partyRepository;
-
     @Autowired
     private PartyService partyService;
 
@@ -38,6 +44,21 @@ public class DoorService {
     @Autowired
     private RoutingService routingService;
 
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DoorTraceService doorTraceService;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -47,15 +68,61 @@ public class DoorService {
     @Value("${mqtt.username:}")
     private String MQTT_USERNAME;
 
+    // QoS 0: the firmware cannot tell a stale "open" from a fresh one, so a command must never be
+    // redelivered after its wait has timed out. Only raise this once the firmware drops stale commands.
+    @Value("${mqtt.door.qos:0}")
+    private int doorQos;
+
+    // Must differ between replicas, defaults to one derived from the cluster node id
+    @Value("${mqtt.door.client-id:}")
+    private String doorClientId;
+
+    // Door commands allowed in flight at once; further requests fail fast
+    @Value("${mqtt.door.max-inflight:2}")
+    private int maxInflight;
+
     // MQTT broker configuration
-    private static final String MQTT_BROKER = "tcp://10.0.0.33:1883";
+    @Value("${mqtt.broker:tcp://10.0.0.33:1883}")
+    private String MQTT_BROKER;
 
     private static final String TOPIC_OPEN_OUTER = "doorbell/open/outer";
     private static final String TOPIC_OPEN_INNER = "doorbell/open/inner";
     private static final String TOPIC_STATUS = "doorbell/open/status";
 
+    // Wait for a free in-flight slot, and for the broker to acknowledge a publish
+    private static final long INFLIGHT_WAIT_MS = 1_000;
+    private static final long PUBLISH_TIMEOUT_MS = 2_000;
+    private static final long RESPONSE_TIMEOUT_MS = 5_000;
+
+    // Each door is a row in cluster_leases held by the one command in flight for it across all replicas.
+    // The device does not echo a command id, so exclusivity is what ties a status message to its command.
+    private static final String LOCK_OUTER = "door_outer";
+    private static final String LOCK_INNER = "door_inner";
+
+    // Covers the publish and the response wait, so a crashed replica cannot hold a door for longer
+    private static final int LOCK_SECONDS = 10;
+
+    private static final String CREATE_LOCK_SQL =
+        "INSERT IGNORE INTO cluster_leases (lease_name, owner, expires_at) VALUES (?, '', NOW(3) - INTERVAL 1 SECOND)";
+
+    private static final String CLAIM_LOCK_SQL =
+        "UPDATE cluster_leases SET owner = ?, expires_at = NOW(3) + INTERVAL ? SECOND WHERE lease_name = ? AND expires_at < NOW(3)";
+
+    private static final String RELEASE_LOCK_SQL =
+        "UPDATE cluster_leases SET expires_at = NOW(3) - INTERVAL 1 SECOND WHERE lease_name = ? AND owner = ?";
+
     private MqttClient mqttClient;
 
+    private Semaphore inflight;
+
+    // Paho blocks in Object.wait() inside synchronized while a publish completes, which pins a virtual
+    // thread to its carrier; publishes run on these platform threads and the request thread parks instead
+    private ExecutorService publishExecutor;
+
+    // The command of this replica waiting for the device to report on each door, if it holds that door
+    private final AtomicReference<CompletableFuture<Boolean>> pendingOuter = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Boolean>> pendingInner = new AtomicReference<>();
+
     public DoorService() {
         // Constructor left empty for Spring bean instantiation.
         // Initialization is handled in the init() method.
@@ -63,101 +130,269 @@ public class DoorService {
 
     @PostConstruct
     public void init() throws MqttException {
-        mqttClient = new MqttClient(MQTT_BROKER, MqttClient.generateClientId(), new MemoryPersistence());
+        inflight = new Semaphore(maxInflight);
+        publishExecutor = Executors.newFixedThreadPool(maxInflight);
+        if (doorClientId.isBlank()) {
+            doorClientId = "operas-door-service-" + leaderLeaseService.getNodeId();
+        }
+        for (String lock : List.of(LOCK_OUTER, LOCK_INNER)) {
+            jdbcTemplate.update(CREATE_LOCK_SQL, lock);
+        }
+
+        // Clean session in memory: nothing unsent survives a reconnect or restart, so a door never opens late
+        mqttClient = new MqttClient(MQTT_BROKER, doorClientId, new MemoryPersistence());
+        mqttClient.setTimeToWait(PUBLISH_TIMEOUT_MS);
 
         MqttConnectOptions options = new MqttConnectOptions();
         options.setUserName(MQTT_USERNAME);
         options.setPassword(MQTT_PASSWORD.toCharArray());
         options.setAutomaticReconnect(true);
         options.setCleanSession(true);
+        options.setMaxInflight(maxInflight * 2);
+
+        // A clean session drops the subscription on every reconnect, so subscribe again each time.
+        // Off the callback thread: Paho must not block on a subscribe from inside its own callback.
+        mqttClient.setCallback(new MqttCallbackExtended() {
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                if (reconnect) {
+                    CompletableFuture.runAsync(DoorService.this::subscribeStatus);
+                }
+            }
+
+            @Override
+            public void connectionLost(Throwable cause) {
+                System.err.println("Door MQTT connection lost: " + cause.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        });
 
         mqttClient.connect(options);
+        subscribeStatus();
     }
 
-    public ResponseEntity<?> openDoor(User user, Double latitude, Double longitude) {
-
-        // Rate limiting (same as before)
-        LocalDateTime tenSecondsAgo = LocalDateTime.now().minusSeconds(10);
-        List<Log> recentLogs = logRepository.findByUser_IdAndLogTypeAndTimestampAfter(
-                user.getId(), "DOOR_OPEN", tenSecondsAgo
-        );
-        if (recentLogs.size() >= 2) {
-            throw new DoorOpenException("Too many door opens in the last 10 seconds. Please wait.");
+    private void subscribeStatus() {
+        Counter statusMessages = meterRegistry.counter("mqtt.messages.received", "topic", TOPIC_STATUS);
+        try {
+            mqttClient.subscribe(TOPIC_STATUS, doorQos, (topic, message) -> {
+                statusMessages.increment();
+                String payload = new String(message.getPayload());
+                if (payload.contains("outer_success")) complete(pendingOuter, true);
+                if (payload.contains("outer_failed")) complete(pendingOuter, false);
+                if (payload.contains("inner_success")) complete(pendingInner, true);
+                if (payload.contains("inner_failed")) complete(pendingInner, false);
+            });
+        } catch (MqttException e) {
+            System.err.println("Failed to subscribe to " + TOPIC_STATUS + ": " + e.getMessage());
         }
+    }
 
-        if (user.isMuted() && user.getType() != User.UserType.KNOWLEDGER) {
-            throw new DoorOpenException("You are muted and cannot open the door.");
+    @PreDestroy
+    public void shutdown() {
+        publishExecutor.shutdown();
+        try {
+            if (mqttClient != null && mqttClient.isConnected()) {
+                mqttClient.disconnect();
+            }
+        } catch (MqttException e) {
+            System.err.println("Failed to disconnect the door MQTT client: " + e.getMessage());
         }
+    }
 
-        // Guest validation
-        if (user.getType() == User.UserType.GUEST) {
-            List<Party> parties = partyRepository.findAll();
-            LocalDateTime now = LocalDateTime.now();
-            parties.forEach(party -> partyService.updateAutomaticStatus(party, now));
-
-            boolean canOpen = parties.stream().anyMatch(party ->
-                party.getStatus() == Party.PartyStatus.IN_PROGRESS &&
-                party.getGuests() != null &&
-                party.getGuests().stream().anyMatch(gs -> gs.getUser().getId().equals(user.getId()))
-            );
-
-            if (!canOpen) {
-                throw new DoorOpenException("You are not invited to any ongoing party.");
-            }
+    public ResponseEntity<?> openDoor(User user, Double latitude, Double longitude) {
+        DoorOpenTrace trace = new DoorOpenTrace(user);
+        try {
+            authorize(user, trace);
+        } catch (DoorOpenException e) {
+            recordOpen(trace, "rejected", e.getMessage());
+            throw e;
         }
 
+        String outcome = "error";
+        String error = null;
+        long phaseStart = System.nanoTime();
+        boolean acquired = false;
         try {
-            // Open outer door via MQTT
-            CompletableFuture<Boolean> outerFuture = new CompletableFuture<>();
-            mqttClient.subscribe(TOPIC_STATUS, (topic, message) -> {
-                String payload = new String(message.getPayload());
-                if (payload.contains("outer_success")) outerFuture.complete(true);
-                if (payload.contains("outer_failed")) outerFuture.complete(false);
-            });
+            // Fail fast instead of waiting out the response timeout while the broker is unreachable
+            if (!mqttClient.isConnected()) {
+                throw new DoorOpenException("Door controller is not connected, try again in a moment");
+            }
+            acquired = inflight.tryAcquire(INFLIGHT_WAIT_MS, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                throw new DoorOpenException("Door is busy, try again in a moment");
+            }
+            phaseStart = recordPhase(trace, "inflight_wait", phaseStart);
 
-            mqttClient.publish(TOPIC_OPEN_OUTER, new MqttMessage("open".getBytes()));
-            boolean outerSuccess = outerFuture.get(5, TimeUnit.SECONDS); // wait up to 5s
+            // Open outer door via MQTT
+            Boolean outerResult = sendCommand(TOPIC_OPEN_OUTER, LOCK_OUTER, pendingOuter);
+            if (outerResult == null) {
+                throw new DoorOpenException("Door is busy, try again in a moment");
+            }
+            boolean outerSuccess = outerResult;
+            recordPhase(trace, "mqtt_outer", phaseStart);
 
             if (!outerSuccess) {
-                logRepository.save(new Log("Outer door failed to open for user " + user.getUsername(), user, "DOOR_OPEN_FAILED"));
+                outcome = "failed";
+                logRepository.save(new Log("Outer door failed to open for user " + user.getUsername(), user, Log.LogType.DOOR_OPEN_FAILED).withTrace(trace.getTraceId()));
+                statisticsService.recordDoorActivity(user, StatisticsService.DoorOutcome.FAILED);
                 return ResponseEntity.status(503).body("Outer door failed to open");
             }
 
-            logRepository.save(new Log("Outer door opened successfully for user " + user.getUsername(), user, "DOOR_OPEN"));
+            logRepository.save(new Log("Outer door opened successfully for user " + user.getUsername(), user, Log.LogType.DOOR_OPEN).withTrace(trace.getTraceId()));
+            statisticsService.recordDoorActivity(user, StatisticsService.DoorOutcome.OPENED);
             StringBuilder responseMessage = new StringBuilder("Outer door opened successfully");
 
             boolean shouldOpenInner = false;
             if (user.isMultipleDoorOpen() && latitude != null && longitude != null) {
-                Double travelTime = routingService.getTravelTime(latitude, longitude);
-                if (travelTime != null && travelTime < 120.0) shouldOpenInner = true;
+                phaseStart = System.nanoTime();
+                try {
+                    shouldOpenInner = routingService.isWithinInnerDoorRange(latitude, longitude);
+                } catch (RuntimeException e) {
+                    // Routing is best effort, the outer door is already open
+                    System.err.println("Inner door check skipped for user " + user.getUsername() + ": " + e.getMessage());
+                }
+                recordPhase(trace, "routing", phaseStart);
             }
 
             if (shouldOpenInner) {
-                CompletableFuture<Boolean> innerFuture = new CompletableFuture<>();
-                mqttClient.subscribe(TOPIC_STATUS, (topic, message) -> {
-                    String payload = new String(message.getPayload());
-                    if (payload.contains("inner_success")) innerFuture.complete(true);
-                    if (payload.contains("inner_failed")) innerFuture.complete(false);
-                });
-
-                mqttClient.publish(TOPIC_OPEN_INNER, new MqttMessage("open".getBytes()));
-                boolean innerSuccess = innerFuture.get(5, TimeUnit.SECONDS);
-
-                if (innerSuccess) {
+                phaseStart = System.nanoTime();
+                Boolean innerResult = sendCommand(TOPIC_OPEN_INNER, LOCK_INNER, pendingInner);
+                recordPhase(trace, "mqtt_inner", phaseStart);
+
+                if (innerResult == null) {
+                    // Someone else is opening the inner door right now
+                    responseMessage.append(" but inner door is busy");
+                } else if (innerResult) {
                     responseMessage.append(" and inner door opened successfully");
-                    logRepository.save(new Log("Inner door opened for user " + user.getUsername(), user, "DOOR_OPEN"));
+                    logRepository.save(new Log("Inner door opened for user " + user.getUsername(), user, Log.LogType.DOOR_OPEN).withTrace(trace.getTraceId()));
+                    statisticsService.recordDoorActivity(user, StatisticsService.DoorOutcome.INNER_OPENED);
                 } else {
                     responseMessage.append(" but inner door failed");
-                    logRepository.save(new Log("Inner door failed for user " + user.getUsername(), user, "DOOR_OPEN_FAILED"));
+                    logRepository.save(new Log("Inner door failed for user " + user.getUsername(), user, Log.LogType.DOOR_OPEN_FAILED).withTrace(trace.getTraceId()));
+                    statisticsService.recordDoorActivity(user, StatisticsService.DoorOutcome.FAILED);
                 }
             }
 
+            phaseStart = System.nanoTime();
             notificationService.sendDoorOpenedNotification(user);
+            recordPhase(trace, "notify", phaseStart);
+
+            outcome = "opened";
             return ResponseEntity.ok(responseMessage.toString());
 
+        } catch (DoorOpenException e) {
+            // Turned away before any command was sent, not a door error
+            outcome = "rejected";
+            error = e.getMessage();
+            throw e;
         } catch (Exception e) {
-            logRepository.save(new Log("Door open error for user " + user.getUsername() + ": " + e.getMessage(), user, "DOOR_OPEN_ERROR"));
+            error = e.getMessage();
+            logRepository.save(new Log("Door open error for user " + user.getUsername() + ": " + e.getMessage(), user, Log.LogType.DOOR_OPEN_ERROR).withTrace(trace.getTraceId()));
+            statisticsService.recordDoorActivity(user, StatisticsService.DoorOutcome.ERROR);
             throw new DoorOpenException("Error opening door via MQTT: " + e.getMessage());
+        } finally {
+            if (acquired) {
+                inflight.release();
+            }
+            recordOpen(trace, outcome, error);
+        }
+    }
+
+    private void authorize(User user, DoorOpenTrace trace) {
+        long phaseStart = System.nanoTime();
+        // Rate limiting (same as before)
+        LocalDateTime tenSecondsAgo = LocalDateTime.now().minusSeconds(10);
+        List<Log> recentLogs = logRepository.findByUser_IdAndLogTypeAndTimestampAfter(
+                user.getId(), Log.LogType.DOOR_OPEN, tenSecondsAgo
+        );
+        phaseStart = recordPhase(trace, "rate_limit", phaseStart);
+        if (recentLogs.size() >= 2) {
+            throw new DoorOpenException("Too many door opens in the last 10 seconds. Please wait.");
+        }
+
+        if (user.isMuted() && user.getType() != User.UserType.KNOWLEDGER) {
+            throw new DoorOpenException("You are muted and cannot open the door.");
+        }
+
+        // Guest validation
+        if (user.getType() == User.UserType.GUEST) {
+            List<Party> parties = partyService.findAllWithCurrentStatus(LocalDateTime.now());
+            boolean invited = isGuestOfOngoingParty(parties, user.getId());
+            recordPhase(trace, "authorization", phaseStart);
+
+            if (!invited) {
+                throw new DoorOpenException("You are not invited to any ongoing party.");
+            }
+        }
+    }
+
+    // Records one phase of a door open as a trace span and returns the start time of the next one
+    private long recordPhase(DoorOpenTrace trace, String phase, long phaseStart) {
+        long now = System.nanoTime();
+        trace.addSpan(phase, phaseStart, now);
+        meterRegistry.timer("door.open.phase", "phase", phase).record(now - phaseStart, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private void recordOpen(DoorOpenTrace trace, String outcome, String error) {
+        trace.finish(outcome, error);
+        meterRegistry.timer("door.open", "outcome", outcome).record((long) (trace.getTotalMs() * 1e6), TimeUnit.NANOSECONDS);
+        doorTraceService.publish(trace);
+    }
+
+    public static boolean isGuestOfOngoingParty(List<Party> parties, Long userId) {
+        return parties.stream().anyMatch(party ->
+            party.getStatus() == Party.PartyStatus.IN_PROGRESS &&
+            party.getGuests() != null &&
+            party.getGuests().stream().anyMatch(gs -> gs.getUser().getId().equals(userId))
+        );
+    }
+
+    // Returns null without sending when another command holds the door
+    private Boolean sendCommand(String topic, String lock, AtomicReference<CompletableFuture<Boolean>> pending) throws Exception {
+        String commandId = UUID.randomUUID().toString();
+        if (jdbcTemplate.update(CLAIM_LOCK_SQL, commandId, LOCK_SECONDS, lock) != 1) {
+            return null;
+        }
+
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        pending.set(future);
+        boolean sent = false;
+        boolean answered = false;
+        try {
+            // The firmware matches the bare "open" payload, so the trace id cannot travel with it
+            MqttMessage message = new MqttMessage("open".getBytes());
+            message.setQos(doorQos);
+            publishExecutor.submit(() -> {
+                mqttClient.publish(topic, message);
+                return null;
+            }).get();
+            sent = true;
+            boolean success = future.get(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            answered = true;
+            return success;
+        } finally {
+            pending.compareAndSet(future, null);
+            // A command that was sent but never answered keeps the door held until the lock expires, so a
+            // late status cannot be taken for the answer to the next command. Unsent, nothing can answer it.
+            if (answered || !sent) {
+                jdbcTemplate.update(RELEASE_LOCK_SQL, lock, commandId);
+            }
+        }
+    }
+
+    // Only the replica whose command holds the door has a pending request, the others ignore the status
+    private static void complete(AtomicReference<CompletableFuture<Boolean>> pending, boolean success) {
+        CompletableFuture<Boolean> future = pending.get();
+        if (future != null) {
+            future.complete(success);
         }
     }
 
@@ -0,0 +1,65 @@
+package com.operas.service;
+
+import com.operas.dto.DoorOpenTrace;
+import com.operas.exceptions.BadRequestException;
+import com.operas.model.User;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the most recent door open traces in memory so Knowledgers can see where the time went
+ * on a slow open. Nothing is persisted; the trace id is also stored on the door log rows.
+ */
+@Service
+public class DoorTraceService {
+
+    @Value("${door.trace.capacity:200}")
+    private int capacity;
+
+    // Newest first, guarded by "this"
+    private final ArrayDeque<DoorOpenTrace> traces = new ArrayDeque<>();
+
+    public synchronized void publish(DoorOpenTrace trace) {
+        traces.addFirst(trace);
+        while (traces.size() > capacity) {
+            traces.removeLast();
+        }
+    }
+
+    public List<DoorOpenTrace> getRecentTraces(User user, int limit, String username) {
+        requireKnowledger(user);
+        if (limit <= 0) {
+            throw new BadRequestException("Limit must be positive");
+        }
+
+        List<DoorOpenTrace> result = new ArrayList<>();
+        synchronized (this) {
+            Iterator<DoorOpenTrace> iterator = traces.iterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                DoorOpenTrace trace = iterator.next();
+                if (username == null || username.equalsIgnoreCase(trace.getUsername())) {
+                    result.add(trace);
+                }
+            }
+        }
+        return result;
+    }
+
+    public synchronized Optional<DoorOpenTrace> getTrace(User user, String traceId) {
+        requireKnowledger(user);
+        return traces.stream().filter(trace -> trace.getTraceId().equals(traceId)).findFirst();
+    }
+
+    private void requireKnowledger(User user) {
+        if (user.getType() != User.UserType.KNOWLEDGER) {
+            throw new BadRequestException("Only Knowledgers can view door traces");
+        }
+    }
+}
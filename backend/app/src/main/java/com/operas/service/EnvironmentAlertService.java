@@ -0,0 +1,158 @@
+package com.operas.service;
+
+import com.operas.dto.EnvironmentSample;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Watches the environment telemetry as it arrives. Air quality readings are checked against
+ * fixed limits and temperature, humidity, TVOC and eCO2 against an exponentially weighted
+ * baseline (rolling z-score), all in O(1) per sample. An alert is sent once when a condition
+ * starts and again only after it has cleared and the cooldown has passed.
+ */
+@Service
+public class EnvironmentAlertService {
+
+    // Weight of each new sample in the baseline, roughly the last 100 samples
+    private static final double ALPHA = 0.01;
+    private static final long WARMUP_SAMPLES = 200;
+    private static final double ANOMALY_Z = 5.0;
+    private static final double CLEAR_Z = 2.0;
+    private static final long COOLDOWN_MILLIS = 30 * 60_000L;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    // Notifications hit the database and OneSignal, keep them off the MQTT callback thread
+    private final ExecutorService sender = Executors.newSingleThreadExecutor();
+
+    // Only touched from the MQTT callback thread
+    private final Threshold airQualityIndex = new Threshold("Air quality index", "", 4, 3);
+    private final Threshold tvocLimit = new Threshold("TVOC", " ppb", 2200, 2000);
+    private final Threshold eco2Limit = new Threshold("eCO2", " ppm", 1500, 1350);
+    private final Baseline temperature = new Baseline("Temperature", " °C", 0.2, 1);
+    // The sensor reports humidity as a 0-1 fraction, shown as a percentage
+    private final Baseline humidity = new Baseline("Humidity", " %", 0.01, 100);
+    private final Baseline tvoc = new Baseline("TVOC", " ppb", 20, 1);
+    private final Baseline eco2 = new Baseline("eCO2", " ppm", 20, 1);
+
+    public void record(EnvironmentSample sample) {
+        long now = sample.receivedAt();
+        check(airQualityIndex, sample.airQualityIndex(), now);
+        check(tvocLimit, sample.tvocPpb(), now);
+        check(eco2Limit, sample.eco2Ppm(), now);
+        check(temperature, sample.temperature(), now);
+        check(humidity, sample.humidity(), now);
+        check(tvoc, sample.tvocPpb(), now);
+        check(eco2, sample.eco2Ppm(), now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+    }
+
+    private void check(Threshold threshold, double value, long now) {
+        if (value >= threshold.raiseAt) {
+            raise(threshold, now, threshold.label + " alert",
+                threshold.label + " is at " + format(value) + threshold.unit + " (limit " + format(threshold.raiseAt) + threshold.unit + ").");
+        } else if (value <= threshold.clearAt) {
+            threshold.active = false;
+        }
+    }
+
+    private void check(Baseline baseline, double value, long now) {
+        if (baseline.samples == 0) {
+            baseline.mean = value;
+        }
+        if (baseline.samples >= WARMUP_SAMPLES) {
+            double deviation = Math.max(Math.sqrt(baseline.variance), baseline.minDeviation);
+            double z = (value - baseline.mean) / deviation;
+            if (Math.abs(z) >= ANOMALY_Z) {
+                raise(baseline, now, "Unusual " + baseline.label.toLowerCase() + " reading",
+                    baseline.label + " " + (z > 0 ? "rose" : "dropped") + " to " + format(value * baseline.displayScale) + baseline.unit
+                    + ", usually around " + format(baseline.mean * baseline.displayScale) + baseline.unit + ".");
+            } else if (Math.abs(z) <= CLEAR_Z) {
+                baseline.active = false;
+            }
+        }
+
+        double diff = value - baseline.mean;
+        baseline.mean += ALPHA * diff;
+        baseline.variance = (1 - ALPHA) * (baseline.variance + ALPHA * diff * diff);
+        baseline.samples++;
+    }
+
+    private void raise(Alert alert, long now, String title, String message) {
+        if (alert.active) {
+            return;
+        }
+        alert.active = true;
+        if (alert.lastSentAt != 0 && now - alert.lastSentAt < COOLDOWN_MILLIS) {
+            return;
+        }
+        alert.lastSentAt = now;
+        // Every replica sees every sample and keeps the same state, only the leader notifies
+        if (!leaderLeaseService.isLeader()) {
+            return;
+        }
+        sender.execute(() -> {
+            try {
+                notificationService.sendEnvironmentAlertNotification(title, message);
+            } catch (Exception e) {
+                System.err.println("Failed to send environment alert: " + e.getMessage());
+            }
+        });
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.1f", value);
+    }
+
+    private abstract static class Alert {
+        final String label;
+        final String unit;
+        boolean active;
+        long lastSentAt;
+
+        Alert(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+    }
+
+    private static class Threshold extends Alert {
+        final double raiseAt;
+        final double clearAt;
+
+        Threshold(String label, String unit, double raiseAt, double clearAt) {
+            super(label, unit);
+            this.raiseAt = raiseAt;
+            this.clearAt = clearAt;
+        }
+    }
+
+    private static class Baseline extends Alert {
+        // Floor for the standard deviation so a very steady signal does not alert on noise
+        final double minDeviation;
+        // Multiplier from the reported value to the value shown in the notification
+        final double displayScale;
+        double mean;
+        double variance;
+        long samples;
+
+        Baseline(String label, String unit, double minDeviation, double displayScale) {
+            super(label, unit);
+            this.minDeviation = minDeviation;
+            this.displayScale = displayScale;
+        }
+    }
+}
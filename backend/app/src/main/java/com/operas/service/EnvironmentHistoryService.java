@@ -0,0 +1,136 @@
+package com.operas.service;
+
+import com.operas.dto.EnvironmentPointDto;
+import com.operas.dto.EnvironmentSample;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full-resolution history of the most recent environment samples. Samples live in fixed-size
+ * parallel primitive arrays used as a ring, so recording never allocates and the oldest
+ * sample is overwritten once the buffer is full.
+ */
+@Service
+public class EnvironmentHistoryService {
+
+    @FunctionalInterface
+    public interface SampleConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    // About 6 hours at one sample every second
+    @Value("${environment.history.capacity:21600}")
+    private int capacity;
+
+    // Parallel arrays indexed by slot, guarded by "this"
+    private long[] timestamps;
+    private double[] temperature;
+    private double[] humidity;
+    private double[] pressure;
+    private double[] altitude;
+    private int[] airQualityIndex;
+    private int[] tvocPpb;
+    private int[] eco2Ppm;
+    private int next;
+    private int size;
+
+    @PostConstruct
+    public void init() {
+        timestamps = new long[capacity];
+        temperature = new double[capacity];
+        humidity = new double[capacity];
+        pressure = new double[capacity];
+        altitude = new double[capacity];
+        airQualityIndex = new int[capacity];
+        tvocPpb = new int[capacity];
+        eco2Ppm = new int[capacity];
+    }
+
+    public synchronized void record(EnvironmentSample sample) {
+        timestamps[next] = sample.receivedAt();
+        temperature[next] = sample.temperature();
+        humidity[next] = sample.humidity();
+        pressure[next] = sample.pressure();
+        altitude[next] = sample.altitude();
+        airQualityIndex[next] = sample.airQualityIndex();
+        tvocPpb[next] = sample.tvocPpb();
+        eco2Ppm[next] = sample.eco2Ppm();
+
+        next = (next + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    // True when the buffer still holds every sample taken since the given time
+    public synchronized boolean covers(long since) {
+        return size > 0 && timestamps[oldestSlot()] <= since;
+    }
+
+    // Streams one metric (an environment_data column name) in time order without copying
+    public synchronized void forEach(String metric, long since, SampleConsumer consumer) {
+        int index = metricIndex(metric);
+        int start = oldestSlot();
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % capacity;
+            if (timestamps[slot] >= since) {
+                consumer.accept(timestamps[slot], value(index, slot));
+            }
+        }
+    }
+
+    public synchronized List<EnvironmentPointDto> getSamples(long since) {
+        List<EnvironmentPointDto> samples = new ArrayList<>();
+        int start = oldestSlot();
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % capacity;
+            if (timestamps[slot] < since) {
+                continue;
+            }
+            EnvironmentPointDto point = new EnvironmentPointDto();
+            point.setCreatedAt(new Timestamp(timestamps[slot]).toLocalDateTime());
+            point.setTemperature(temperature[slot]);
+            point.setHumidity(humidity[slot]);
+            point.setPressure(pressure[slot]);
+            point.setAltitude(altitude[slot]);
+            point.setAirQualityIndex((double) airQualityIndex[slot]);
+            point.setTvocPpb((double) tvocPpb[slot]);
+            point.setEco2Ppm((double) eco2Ppm[slot]);
+            samples.add(point);
+        }
+        return samples;
+    }
+
+    // Must be called while holding the lock
+    private int oldestSlot() {
+        return (next - size + capacity) % capacity;
+    }
+
+    private double value(int metric, int slot) {
+        return switch (metric) {
+            case 0 -> temperature[slot];
+            case 1 -> humidity[slot];
+            case 2 -> pressure[slot];
+            case 3 -> altitude[slot];
+            case 4 -> airQualityIndex[slot];
+            case 5 -> tvocPpb[slot];
+            case 6 -> eco2Ppm[slot];
+            default -> throw new IllegalArgumentException("Unknown metric index: " + metric);
+        };
+    }
+
+    private static int metricIndex(String metric) {
+        for (int i = 0; i < EnvironmentRollupService.METRICS.length; i++) {
+            if (EnvironmentRollupService.METRICS[i].equals(metric)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + metric);
+    }
+}
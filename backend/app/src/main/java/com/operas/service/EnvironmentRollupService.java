@@ -0,0 +1,315 @@
+package com.operas.service;
+
+import com.operas.dto.EnvironmentSample;
+import com.operas.model.EnvironmentRollup;
+import com.operas.repository.EnvironmentRollupRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains minute/hour/day min/max/sum rollups of the environment telemetry.
+ * Samples are folded into an in-memory accumulator for the current minute; when the
+ * minute closes it is merged into pending minute, hour and day rows that a scheduled
+ * writer upserts in one JDBC batch, so ingest never waits on the database.
+ */
+@Service
+public class EnvironmentRollupService {
+
+    // Column prefixes in environment_rollups, also the raw environment_data column names
+    static final String[] METRICS = {
+        "temperature", "humidity", "pressure", "altitude", "air_quality_index", "tvoc_ppb", "eco2_ppm"
+    };
+
+    // Minute rows are only needed for short windows
+    private static final int MINUTE_RETENTION_DAYS = 7;
+
+    // About a day of minute rows held back while the database is unavailable
+    private static final int MAX_PENDING_MINUTES = 1440;
+
+    private static final String UPSERT_SQL = buildUpsertSql();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EnvironmentRollupRepository environmentRollupRepository;
+
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    // Accumulator for the minute currently being filled, guarded by "this"
+    private LocalDateTime currentMinute;
+    private long count;
+    private final double[] sums = new double[METRICS.length];
+    private final double[] mins = new double[METRICS.length];
+    private final double[] maxs = new double[METRICS.length];
+
+    // Closed buckets waiting for the writer, merged per bucket, guarded by "this"
+    private final Map<BucketKey, PendingRow> pending = new LinkedHashMap<>();
+    private int pendingMinutes;
+    private long droppedMinutes;
+
+    @PostConstruct
+    public void backfill() {
+        // First start with rollups: derive them from the raw samples already stored
+        for (EnvironmentRollup.Resolution resolution : EnvironmentRollup.Resolution.values()) {
+            try {
+                if (!environmentRollupRepository.existsByResolution(resolution)) {
+                    jdbcTemplate.update(buildBackfillSql(resolution));
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to backfill " + resolution + " environment rollups: " + e.getMessage());
+            }
+        }
+    }
+
+    // Called on the MQTT callback thread: in-memory only, the database is written by flushPending
+    public void record(EnvironmentSample sample) {
+        double[] values = values(sample);
+        LocalDateTime minute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+
+        synchronized (this) {
+            if (currentMinute != null && !currentMinute.equals(minute)) {
+                closeMinute();
+            }
+            if (count == 0) {
+                currentMinute = minute;
+                Arrays.fill(sums, 0);
+                Arrays.fill(mins, Double.POSITIVE_INFINITY);
+                Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+            }
+            count++;
+            for (int i = 0; i < values.length; i++) {
+                sums[i] += values[i];
+                mins[i] = Math.min(mins[i], values[i]);
+                maxs[i] = Math.max(maxs[i], values[i]);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    public void flushPending() {
+        synchronized (this) {
+            // Close the minute even if the device stopped sending
+            if (count > 0 && currentMinute.isBefore(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES))) {
+                closeMinute();
+            }
+        }
+        write();
+    }
+
+    @PreDestroy
+    public void flush() {
+        synchronized (this) {
+            if (count > 0) {
+                closeMinute();
+            }
+        }
+        write();
+    }
+
+    @Scheduled(cron = "0 30 3 * * *") // Every day at 03:30
+    public void purgeOldMinuteRollups() {
+        if (!leaderLeaseService.isLeader()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(MINUTE_RETENTION_DAYS);
+        environmentRollupRepository.deleteOlderThan(EnvironmentRollup.Resolution.MINUTE, cutoff);
+    }
+
+    public EnvironmentRollup.Resolution resolutionFor(int hours) {
+        // Keep every response at roughly 200 points or fewer
+        if (hours <= 3) {
+            return EnvironmentRollup.Resolution.MINUTE;
+        }
+        if (hours <= 24 * 8) {
+            return EnvironmentRollup.Resolution.HOUR;
+        }
+        return EnvironmentRollup.Resolution.DAY;
+    }
+
+    // Finest resolution still retained for the whole window
+    public EnvironmentRollup.Resolution finestResolutionFor(int hours) {
+        return hours <= MINUTE_RETENTION_DAYS * 24 ? EnvironmentRollup.Resolution.MINUTE : EnvironmentRollup.Resolution.HOUR;
+    }
+
+    public List<EnvironmentRollup> getRollups(int hours) {
+        EnvironmentRollup.Resolution resolution = resolutionFor(hours);
+        LocalDateTime since = truncate(LocalDateTime.now().minusHours(hours), resolution);
+        return environmentRollupRepository.findByResolutionAndBucketStartGreaterThanEqualOrderByBucketStartAsc(resolution, since);
+    }
+
+    // Must be called while holding the lock; moves the accumulator into the pending rows
+    private void closeMinute() {
+        for (EnvironmentRollup.Resolution resolution : EnvironmentRollup.Resolution.values()) {
+            BucketKey key = new BucketKey(resolution, truncate(currentMinute, resolution));
+            PendingRow row = pending.get(key);
+            if (row == null) {
+                row = new PendingRow();
+                pending.put(key, row);
+                if (resolution == EnvironmentRollup.Resolution.MINUTE) {
+                    pendingMinutes++;
+                }
+            }
+            row.merge(count, sums, mins, maxs);
+        }
+        count = 0;
+        dropOldestMinutes();
+    }
+
+    // Must be called while holding the lock. While the database is unavailable the hour and day
+    // rows keep absorbing new minutes; only minute detail beyond the cap is given up.
+    private void dropOldestMinutes() {
+        Iterator<BucketKey> keys = pending.keySet().iterator();
+        while (pendingMinutes > MAX_PENDING_MINUTES && keys.hasNext()) {
+            if (keys.next().resolution() == EnvironmentRollup.Resolution.MINUTE) {
+                keys.remove();
+                pendingMinutes--;
+                droppedMinutes++;
+            }
+        }
+    }
+
+    private void write() {
+        Map<BucketKey, PendingRow> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            pendingMinutes = 0;
+            if (droppedMinutes > 0) {
+                System.err.println("Dropped " + droppedMinutes + " minute environment rollups while the database was unavailable");
+                droppedMinutes = 0;
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((key, row) -> rows.add(row.toArgs(key)));
+        try {
+            // One transaction so a failed batch can be requeued without counting anything twice
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_SQL, rows));
+        } catch (Exception e) {
+            System.err.println("Failed to write environment rollups, retrying later: " + e.getMessage());
+            synchronized (this) {
+                batch.forEach((key, row) -> {
+                    PendingRow current = pending.get(key);
+                    if (current != null) {
+                        row.merge(current.count, current.sums, current.mins, current.maxs);
+                    } else if (key.resolution() == EnvironmentRollup.Resolution.MINUTE) {
+                        pendingMinutes++;
+                    }
+                    pending.put(key, row);
+                });
+                dropOldestMinutes();
+            }
+        }
+    }
+
+    private static LocalDateTime truncate(LocalDateTime time, EnvironmentRollup.Resolution resolution) {
+        return switch (resolution) {
+            case MINUTE -> time.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+        };
+    }
+
+    private static double[] values(EnvironmentSample sample) {
+        return new double[] {
+            sample.temperature(),
+            sample.humidity(),
+            sample.pressure(),
+            sample.altitude(),
+            sample.airQualityIndex(),
+            sample.tvocPpb(),
+            sample.eco2Ppm()
+        };
+    }
+
+    private record BucketKey(EnvironmentRollup.Resolution resolution, LocalDateTime bucketStart) {}
+
+    private static class PendingRow {
+        private long count;
+        private final double[] sums = new double[METRICS.length];
+        private final double[] mins = new double[METRICS.length];
+        private final double[] maxs = new double[METRICS.length];
+
+        private PendingRow() {
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        }
+
+        private void merge(long count, double[] sums, double[] mins, double[] maxs) {
+            this.count += count;
+            for (int i = 0; i < METRICS.length; i++) {
+                this.sums[i] += sums[i];
+                this.mins[i] = Math.min(this.mins[i], mins[i]);
+                this.maxs[i] = Math.max(this.maxs[i], maxs[i]);
+            }
+        }
+
+        private Object[] toArgs(BucketKey key) {
+            List<Object> args = new ArrayList<>();
+            args.add(key.resolution().name());
+            args.add(Timestamp.valueOf(key.bucketStart()));
+            args.add(count);
+            for (int i = 0; i < METRICS.length; i++) {
+                args.add(sums[i]);
+                args.add(mins[i]);
+                args.add(maxs[i]);
+            }
+            return args.toArray();
+        }
+    }
+
+    private static String buildUpsertSql() {
+        StringBuilder columns = new StringBuilder("resolution, bucket_start, sample_count");
+        StringBuilder placeholders = new StringBuilder("?, ?, ?");
+        StringBuilder updates = new StringBuilder("sample_count = sample_count + VALUES(sample_count)");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_sum, ").append(metric).append("_min, ").append(metric).append("_max");
+            placeholders.append(", ?, ?, ?");
+            updates.append(", ").append(metric).append("_sum = ").append(metric).append("_sum + VALUES(").append(metric).append("_sum)")
+                   .append(", ").append(metric).append("_min = LEAST(").append(metric).append("_min, VALUES(").append(metric).append("_min))")
+                   .append(", ").append(metric).append("_max = GREATEST(").append(metric).append("_max, VALUES(").append(metric).append("_max))");
+        }
+        return "INSERT INTO environment_rollups (" + columns + ") VALUES (" + placeholders + ") "
+             + "ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+    private static String buildBackfillSql(EnvironmentRollup.Resolution resolution) {
+        String bucket = switch (resolution) {
+            case MINUTE -> "DATE_FORMAT(created_at, '%Y-%m-%d %H:%i:00')";
+            case HOUR -> "DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00')";
+            case DAY -> "DATE_FORMAT(created_at, '%Y-%m-%d 00:00:00')";
+        };
+        StringBuilder columns = new StringBuilder("resolution, bucket_start, sample_count");
+        StringBuilder selects = new StringBuilder("'" + resolution.name() + "', " + bucket + ", COUNT(*)");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_sum, ").append(metric).append("_min, ").append(metric).append("_max");
+            selects.append(", SUM(").append(metric).append("), MIN(").append(metric).append("), MAX(").append(metric).append(")");
+        }
+        return "INSERT INTO environment_rollups (" + columns + ") SELECT " + selects
+             + " FROM environment_data GROUP BY " + bucket;
+    }
+}
@@ -18,8 +18,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Service
 public class KnowledgerService {
 
-    private static volatile boolean maintenanceActive = false;
-    private static volatile boolean registrationBlocked = false;
+    @Autowired
+    private SystemSettingsService systemSettingsService;
 
     @Autowired
     private NotificationService notificationService;
@@ -40,10 +40,11 @@ public class KnowledgerService {
         if (user.getType() != User.UserType.KNOWLEDGER) {
             throw new BadRequestException("Only knowledger can activate maintenance");
         }
-        maintenanceActive = true;
+        systemSettingsService.setBoolean(SystemSettingsService.MAINTENANCE_ACTIVE, true);
         
         // Log maintenance activation
-        logRepository.save(new Log("Knowledger " + user.getUsername() + " activated maintenance mode", user, "MAINTENANCE"));
+        logRepository.save(new Log("Knowledger " + user.getUsername() + " activated maintenance mode", user, Log.LogType.MAINTENANCE)
+            .withChange(false, true));
         
         List<Long> userIds = userRepository.findAll().stream()
             .map(User::getId)
@@ -55,10 +56,11 @@ public class KnowledgerService {
         if (user.getType() != User.UserType.KNOWLEDGER) {
             throw new BadRequestException("Only knowledger can deactivate maintenance");
         }
-        maintenanceActive = false;
+        systemSettingsService.setBoolean(SystemSettingsService.MAINTENANCE_ACTIVE, false);
         
         // Log maintenance deactivation
-        logRepository.save(new Log("Knowledger " + user.getUsername() + " deactivated maintenance mode", user, "MAINTENANCE"));
+        logRepository.save(new Log("Knowledger " + user.getUsername() + " deactivated maintenance mode", user, Log.LogType.MAINTENANCE)
+            .withChange(true, false));
         
         List<Long> userIds = userRepository.findAll().stream()
             .map(User::getId)
@@ -67,17 +69,18 @@ public class KnowledgerService {
     }
 
     public boolean isMaintenanceActive() {
-        return maintenanceActive;
+        return systemSettingsService.getBoolean(SystemSettingsService.MAINTENANCE_ACTIVE);
     }
 
     public void blockRegistration(User user) {
         if (user.getType() != User.UserType.KNOWLEDGER) {
             throw new BadRequestException("Only knowledger can block registration");
         }
-        registrationBlocked = true;
+        systemSettingsService.setBoolean(SystemSettingsService.REGISTRATION_BLOCKED, true);
         
         // Log registration blocking
-        logRepository.save(new Log("Knowledger " + user.getUsername() + " blocked new user registrations", user, "REGISTRATION_MANAGEMENT"));
+        logRepository.save(new Log("Knowledger " + user.getUsername() + " blocked new user registrations", user, Log.LogType.REGISTRATION_MANAGEMENT)
+            .withChange(false, true));
         
         List<Long> knowledgerIds = userRepository.findAll().stream()
             .filter(u -> u.getType() == User.UserType.KNOWLEDGER)
@@ -90,10 +93,11 @@ public class KnowledgerService {
         if (user.getType() != User.UserType.KNOWLEDGER) {
             throw new BadRequestException("Only knowledger can unblock registration");
         }
-        registrationBlocked = false;
+        systemSettingsService.setBoolean(SystemSettingsService.REGISTRATION_BLOCKED, false);
         
         // Log registration unblocking
-        logRepository.save(new Log("Knowledger " + user.getUsername() + " unblocked new user registrations", user, "REGISTRATION_MANAGEMENT"));
+        logRepository.save(new Log("Knowledger " + user.getUsername() + " unblocked new user registrations", user, Log.LogType.REGISTRATION_MANAGEMENT)
+            .withChange(true, false));
         
         List<Long> knowledgerIds = userRepository.findAll().stream()
             .filter(u -> u.getType() == User.UserType.KNOWLEDGER)
@@ -103,7 +107,7 @@ public class KnowledgerService {
     }
 
     public boolean isRegistrationBlocked() {
-        return registrationBlocked;
+        return systemSettingsService.getBoolean(SystemSettingsService.REGISTRATION_BLOCKED);
     }
 
     public PasswordResetRequest requestPasswordReset(String username) {
@@ -158,7 +162,8 @@ public class KnowledgerService {
         request.setProcessedBy(knowledger.getId());
         
         // Log password reset approval
-        logRepository.save(new Log("Knowledger " + knowledger.getUsername() + " approved password reset request for user: " + request.getUsername(), knowledger, "PASSWORD_RESET"));
+        logRepository.save(new Log("Knowledger " + knowledger.getUsername() + " approved password reset request for user: " + request.getUsername(), knowledger, Log.LogType.PASSWORD_RESET)
+            .withChange(PasswordResetRequest.RequestStatus.PENDING, PasswordResetRequest.RequestStatus.APPROVED));
 
         return passwordResetRequestRepository.save(request);
     }
@@ -181,7 +186,8 @@ public class KnowledgerService {
         request.setRejectionReason(reason);
         
         // Log password reset rejection
-        logRepository.save(new Log("Knowledger " + knowledger.getUsername() + " rejected password reset request for user: " + request.getUsername() + " with reason: " + reason, knowledger, "PASSWORD_RESET"));
+        logRepository.save(new Log("Knowledger " + knowledger.getUsername() + " rejected password reset request for user: " + request.getUsername() + " with reason: " + reason, knowledger, Log.LogType.PASSWORD_RESET)
+            .withChange(PasswordResetRequest.RequestStatus.PENDING, PasswordResetRequest.RequestStatus.REJECTED));
 
         return passwordResetRequestRepository.save(request);
     }
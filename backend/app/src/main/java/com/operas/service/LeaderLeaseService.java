@@ -0,0 +1,121 @@
+package com.operas.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects one backend instance to run the cluster-wide scheduled jobs (reminders, device status
+ * runs, purges) using a lease row in cluster_leases. The holder renews the lease well before it
+ * expires; any other instance takes it over once it has expired. Expiry is compared against the
+ * database clock, so the instances' clocks do not need to agree. Renewal runs on its own thread so
+ * a long scheduled job can never delay it past the TTL.
+ */
+@Service
+@DependsOn("entityManagerFactory") // cluster_leases is created by Hibernate
+public class LeaderLeaseService {
+
+    private static final String LEASE_NAME = "scheduler";
+
+    private static final String CREATE_SQL =
+        "INSERT IGNORE INTO cluster_leases (lease_name, owner, expires_at) VALUES (?, ?, NOW(3) - INTERVAL 1 SECOND)";
+
+    // Succeeds only for the current holder or when the lease has expired
+    private static final String CLAIM_SQL =
+        "UPDATE cluster_leases SET owner = ?, expires_at = NOW(3) + INTERVAL ? SECOND " +
+        "WHERE lease_name = ? AND (owner = ? OR expires_at < NOW(3))";
+
+    private static final String RELEASE_SQL =
+        "UPDATE cluster_leases SET expires_at = NOW(3) - INTERVAL 1 SECOND WHERE lease_name = ? AND owner = ?";
+
+    @Value("${cluster.node-id:}")
+    private String nodeId;
+
+    // Random per process, so a restarted or duplicated node never inherits a lease it did not claim
+    private final String owner = UUID.randomUUID().toString();
+
+    @Value("${cluster.lease.ttl-seconds:15}")
+    private int ttlSeconds;
+
+    @Value("${cluster.lease.renew-ms:5000}")
+    private long renewMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Local deadline (System.nanoTime) until which this node may act as leader, 0 when it is not
+    private volatile long leaderUntil;
+
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "leader-lease");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            // Fine for a single instance; replicas would then use a new door MQTT client id on every restart
+            nodeId = "node-" + owner.substring(0, 8);
+            System.err.println("CLUSTER_NODE_ID is not set, using " + nodeId + "; set it on every replica when running more than one");
+        }
+        try {
+            jdbcTemplate.update(CREATE_SQL, LEASE_NAME, owner);
+        } catch (Exception e) {
+            System.err.println("Failed to create the scheduler lease: " + e.getMessage());
+        }
+        renew();
+        renewer.scheduleWithFixedDelay(this::renew, renewMs, renewMs, TimeUnit.MILLISECONDS);
+        System.out.println("Cluster node " + nodeId + " (lease owner " + owner + ")" + (isLeader() ? " holds" : " does not hold") + " the scheduler lease");
+    }
+
+    public boolean isLeader() {
+        long until = leaderUntil;
+        return until != 0 && System.nanoTime() - until < 0;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void renew() {
+        // Measured before the round trip, and a second short of the TTL, so this node always gives up first
+        long started = System.nanoTime();
+        boolean wasLeader = isLeader();
+        try {
+            boolean claimed = jdbcTemplate.update(CLAIM_SQL, owner, ttlSeconds, LEASE_NAME, owner) == 1;
+            leaderUntil = claimed ? started + (ttlSeconds - 1) * 1_000_000_000L : 0;
+        } catch (Exception e) {
+            // Keep the current deadline: the lease stays ours until it runs out
+            System.err.println("Failed to renew the scheduler lease: " + e.getMessage());
+        }
+
+        boolean leader = isLeader();
+        if (leader != wasLeader) {
+            System.out.println("Cluster node " + nodeId + (leader ? " became" : " is no longer") + " the scheduler leader");
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        renewer.shutdownNow();
+        if (isLeader()) {
+            leaderUntil = 0;
+            try {
+                // Lets another instance take over at its next renewal instead of after the TTL
+                jdbcTemplate.update(RELEASE_SQL, LEASE_NAME, owner);
+            } catch (Exception e) {
+                System.err.println("Failed to release the scheduler lease: " + e.getMessage());
+            }
+        }
+    }
+}
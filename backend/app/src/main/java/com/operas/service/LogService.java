@@ -7,10 +7,12 @@ import com.operas.repository.UserRepository;
 import com.operas.dto.LogDto;
 import com.operas.exceptions.BadRequestException;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -18,11 +20,23 @@ public class LogService {
 
     private final LogRepository logRepository;
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Autowired
-    public LogService(LogRepository logRepository, UserRepository userRepository) {
+    public LogService(LogRepository logRepository, UserRepository userRepository, JdbcTemplate jdbcTemplate) {
         this.logRepository = logRepository;
         this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createSearchIndex() {
+        // Hibernate's ddl-auto cannot declare FULLTEXT indexes, so make sure it exists on startup
+        try {
+            jdbcTemplate.execute("CREATE FULLTEXT INDEX IF NOT EXISTS idx_logs_message_fulltext ON logs (message)");
+        } catch (Exception e) {
+            System.err.println("Failed to create log search index: " + e.getMessage());
+        }
     }
 
     public Log createLog(Long userId, Log log) {
@@ -42,6 +56,43 @@ public class LogService {
         
         return logs.map(LogDto::fromEntity);
     }
+
+    public Page<LogDto> searchLogs(User user, String query, int page, int size) {
+        if (user.getType() != User.UserType.KNOWLEDGER) {
+            throw new BadRequestException("Only Knowledgers can access logs");
+        }
+        if (query == null || query.trim().isEmpty()) {
+            throw new BadRequestException("Search query is required");
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<Log> logs = logRepository.searchByMessage(query.trim(), pageable);
+
+        return logs.map(LogDto::fromEntity);
+    }
+    
+    public Page<LogDto> getPartyLogs(User user, Long partyId, int page, int size) {
+        if (user.getType() != User.UserType.KNOWLEDGER) {
+            throw new BadRequestException("Only Knowledgers can access logs");
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<Log> logs = logRepository.findByPartyIdOrderByTimestampDesc(partyId, pageable);
+
+        return logs.map(LogDto::fromEntity);
+    }
+
+    public Page<LogDto> getUserLogs(User user, Long userId, int page, int size) {
+        if (user.getType() != User.UserType.KNOWLEDGER) {
+            throw new BadRequestException("Only Knowledgers can access logs");
+        }
+
+        // Actions performed by the user as well as actions performed on them
+        Pageable pageable = PageRequest.of(page, size);
+        Page<Log> logs = logRepository.findByActorOrTarget(userId, pageable);
+
+        return logs.map(LogDto::fromEntity);
+    }
     
     public long getTotalLogsCount(User user) {
         if (user.getType() != User.UserType.KNOWLEDGER) {
@@ -3,6 +3,7 @@ package com.operas.service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import com.operas.dto.NotificationDto;
 import com.operas.model.Notification;
@@ -33,7 +34,13 @@ public class NotificationService {
     @Lazy
     private KnowledgerService knowledgerService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public void sendNotification(NotificationDto notificationDto) {
+        meterRegistry.summary("notifications.recipients", "type", String.valueOf(notificationDto.getType()))
+            .record(notificationDto.getUserIds().size());
+
         // Send dashboard notification
         dashboardNotificationService.sendNotification(notificationDto);
         
@@ -259,6 +266,66 @@ public class NotificationService {
         }
     }
 
+    public void sendEnvironmentAlertNotification(String title, String message) {
+        List<Long> userIds = userRepository.findAll().stream()
+            .filter(u -> u.getType() == User.UserType.KNOWLEDGER || u.getType() == User.UserType.HOUSER)
+            .map(User::getId)
+            .toList();
+
+        if (!userIds.isEmpty()) {
+            NotificationDto notificationDto = new NotificationDto(
+                title,
+                message,
+                userIds,
+                Notification.NotificationType.SECURITY,
+                null
+            );
+            sendNotification(notificationDto);
+        }
+    }
+
+    public void sendDeviceOfflineNotification() {
+        sendKnowledgerDoorbellNotification(
+            "Doorbell Offline",
+            "The doorbell device stopped sending heartbeats. Door opening will not work until it is back."
+        );
+    }
+
+    public void sendDeviceBackOnlineNotification(long offlineSeconds) {
+        sendKnowledgerDoorbellNotification(
+            "Doorbell Back Online",
+            "The doorbell device is back online after " + formatDuration(offlineSeconds) + " offline."
+        );
+    }
+
+    private void sendKnowledgerDoorbellNotification(String title, String message) {
+        List<Long> knowledgerIds = userRepository.findAll().stream()
+            .filter(u -> u.getType() == User.UserType.KNOWLEDGER)
+            .map(User::getId)
+            .toList();
+
+        if (!knowledgerIds.isEmpty()) {
+            NotificationDto notificationDto = new NotificationDto(
+                title,
+                message,
+                knowledgerIds,
+                Notification.NotificationType.DOORBELL,
+                null
+            );
+            sendNotification(notificationDto);
+        }
+    }
+
+    private static String formatDuration(long seconds) {
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return (seconds / 60) + "m " + (seconds % 60) + "s";
+        }
+        return (seconds / 3600) + "h " + ((seconds % 3600) / 60) + "m";
+    }
+
     public void sendPartyScheduleChangedNotification(Party party, LocalDateTime oldStartDateTime, LocalDateTime oldEndDateTime, List<Long> userIds) {
         boolean isCleaning = party.getType() == Party.PartyType.CLEANING;
         
@@ -2,6 +2,7 @@ package com.operas.service;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import com.operas.dto.NotificationDto;
 import com.operas.model.Notification;
@@ -14,7 +15,9 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,10 +31,17 @@ public class OneSignalNotificationService {
     
     private final UserRepository userRepository;
     private final PartyRepository partyRepository;
+    private final MeterRegistry meterRegistry;
+
+    // Shared so connections to OneSignal are reused instead of a new client and selector thread per push
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
     
-    public OneSignalNotificationService(UserRepository userRepository, PartyRepository partyRepository) {
+    public OneSignalNotificationService(UserRepository userRepository, PartyRepository partyRepository, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.partyRepository = partyRepository;
+        this.meterRegistry = meterRegistry;
     }
 
     public void sendNotification(NotificationDto notificationDto) {
@@ -107,13 +117,22 @@ public class OneSignalNotificationService {
             .header("Content-Type", "application/json")
             .header("Authorization", "Key " + apiKey)
             .POST(HttpRequest.BodyPublishers.ofString(json))
+            .timeout(Duration.ofSeconds(10))
             .build();
         
-        HttpClient client = HttpClient.newHttpClient();
-        HttpResponse<String> response = client.send(request, 
-            HttpResponse.BodyHandlers.ofString());
-        
-        System.out.println("Response: " + response.body());
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            HttpResponse<String> response = httpClient.send(request, 
+                HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() < 300) {
+                outcome = "success";
+            }
+            System.out.println("Response: " + response.body());
+        } finally {
+            meterRegistry.timer("notifications.push", "outcome", outcome)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
     
     private String formatIds(List<String> oneSignalIds) {
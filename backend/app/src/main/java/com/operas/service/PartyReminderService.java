@@ -1,23 +1,35 @@
 package com.operas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import jakarta.annotation.PreDestroy;
 
 import com.operas.model.Party;
 import com.operas.model.GuestStatus;
 import com.operas.model.User;
 import com.operas.model.Notification;
+import com.operas.model.PartyReminder;
+import com.operas.repository.PartyReminderRepository;
 import com.operas.repository.PartyRepository;
 import com.operas.repository.UserRepository;
 import com.operas.dto.NotificationDto;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
 public class PartyReminderService {
@@ -34,14 +46,77 @@ public class PartyReminderService {
     @Autowired
     private PartyService partyService;
 
+    @Autowired
+    private LeaderLeaseService leaderLeaseService;
+
+    @Autowired
+    private PartyReminderRepository partyReminderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final int BATCH_SIZE = 50;
+
+    // A claim not confirmed within this time belongs to a run that died mid-send
+    private static final int STALE_CLAIM_MINUTES = 10;
+
+    private static final String SYNC_SQL =
+        "INSERT INTO party_reminders (party_id, reminder_type, status, due_at, expires_at) VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "status = IF(status <> 'SENDING' AND due_at <> VALUES(due_at) AND VALUES(due_at) > ?, 'PENDING', status), " +
+        "due_at = VALUES(due_at), expires_at = VALUES(expires_at)";
+
+    private static final String SKIP_EXPIRED_SQL =
+        "UPDATE party_reminders SET status = 'SKIPPED' WHERE status = 'PENDING' AND expires_at <= ?";
+
+    // A send that started may have reached OneSignal, so it is never retried
+    private static final String SKIP_STALE_SQL =
+        "UPDATE party_reminders SET status = 'SKIPPED' WHERE status = 'SENDING' AND send_started_at IS NOT NULL AND claimed_at < ?";
+
+    // Nothing was sent for a claim that never started, so it goes back to PENDING
+    private static final String RELEASE_STALE_SQL =
+        "UPDATE party_reminders SET status = 'PENDING', claim_token = NULL, claimed_at = NULL " +
+        "WHERE status = 'SENDING' AND send_started_at IS NULL AND claimed_at < ?";
+
+    private static final String RELEASE_UNSTARTED_SQL =
+        "UPDATE party_reminders SET status = 'PENDING', claim_token = NULL, claimed_at = NULL " +
+        "WHERE claim_token = ? AND status = 'SENDING' AND send_started_at IS NULL";
+
+    // Only rows still PENDING can be claimed, so concurrent runs never get the same reminder
+    private static final String CLAIM_SQL =
+        "UPDATE party_reminders SET status = 'SENDING', claim_token = ?, claimed_at = ?, send_started_at = NULL " +
+        "WHERE status = 'PENDING' AND due_at <= ? AND expires_at > ? ORDER BY due_at LIMIT ?";
+
+    private static final String MARK_STARTED_SQL =
+        "UPDATE party_reminders SET send_started_at = ? WHERE id = ? AND claim_token = ? AND status = 'SENDING'";
+
+    private static final String MARK_SENT_SQL =
+        "UPDATE party_reminders SET status = 'SENT', sent_at = ? WHERE id = ? AND claim_token = ?";
+
+    private static final String SKIP_SQL =
+        "UPDATE party_reminders SET status = 'SKIPPED' WHERE id = ? AND claim_token = ?";
+
+    private static final String RELEASE_SQL =
+        "UPDATE party_reminders SET status = 'PENDING', claim_token = NULL, claimed_at = NULL, send_started_at = NULL " +
+        "WHERE id = ? AND claim_token = ?";
+
+    // Reminders of one batch are sent in parallel, each notification is a OneSignal round trip
+    private final ExecutorService reminderSender = Executors.newFixedThreadPool(4);
+
     private final Random random = new Random();
 
     @Scheduled(cron = "0 * * * * *") // Every minute at 0 seconds
-    @Transactional
     public void checkPartyReminders() {
+        if (!leaderLeaseService.isLeader()) {
+            return; // Another replica sends the reminders
+        }
         LocalDateTime now = LocalDateTime.now();
         List<Party> parties = partyRepository.findAll();
-        
+
+        List<Object[]> ledgerRows = new ArrayList<>();
         for (Party party : parties) {
             // Skip cancelled parties
             if (party.getStatus() == Party.PartyStatus.CANCELLED) {
@@ -51,85 +126,122 @@ public class PartyReminderService {
             // Update automatic status first
             partyService.updateAutomaticStatus(party, now);
 
-            // Get all users for this party (host + guests), excluding NOT_GOING guests
-            List<Long> userIds = getAllPartyUserIds(party);
+            // Parties that ended more than a day ago have nothing left to send
+            if (party.getDateTime() != null && party.getEndDateTime() != null
+                    && party.getEndDateTime().plusDays(1).isAfter(now)) {
+                addLedgerRows(ledgerRows, party, now);
+            }
+        }
+        jdbcTemplate.batchUpdate(SYNC_SQL, ledgerRows);
+        jdbcTemplate.update(SKIP_EXPIRED_SQL, now);
 
-            // If no users to notify, skip
-            if (userIds.isEmpty()) {
-                continue;
+        Timestamp staleBefore = Timestamp.valueOf(now.minusMinutes(STALE_CLAIM_MINUTES));
+        int stale = jdbcTemplate.update(SKIP_STALE_SQL, staleBefore);
+        if (stale > 0) {
+            System.err.println(stale + " party reminders were being sent but never confirmed and will not be resent");
+        }
+        jdbcTemplate.update(RELEASE_STALE_SQL, staleBefore);
+
+        // Claim due reminders a batch at a time; a claimed row belongs to this run only
+        while (true) {
+            if (!leaderLeaseService.isLeader()) {
+                break; // Lost the lease mid-run, the new leader picks up what is left
             }
-            
-            // Check for 3 days reminder
-            if (!party.isReminder3DaysSent() && party.getDateTime() != null) {
-                LocalDateTime threeDaysBefore = party.getDateTime().minusDays(3);
-                long minutesUntilParty = java.time.Duration.between(now, party.getDateTime()).toMinutes();
-                // Only send if we're past the 3-day mark but still have more than 24 hours left
-                if (now.isAfter(threeDaysBefore) && minutesUntilParty > 24 * 60) {
-                    notificationService.sendPartyReminderNotification(party, "3_DAYS", userIds);
-                    party.setReminder3DaysSent(true);
-                    partyRepository.save(party);
-                }
-                // Mark as sent if it's too late to send (less than 24 hours left)
-                else if (now.isAfter(threeDaysBefore) && minutesUntilParty <= 24 * 60) {
-                    party.setReminder3DaysSent(true);
-                    partyRepository.save(party);
-                }
+            String claimToken = UUID.randomUUID().toString();
+            int claimed = jdbcTemplate.update(CLAIM_SQL, claimToken, now, now, now, BATCH_SIZE);
+            if (claimed == 0) {
+                break;
             }
-            
-            // Check for 24 hours reminder
-            if (!party.isReminder24HoursSent() && party.getDateTime() != null) {
-                LocalDateTime twentyFourHoursBefore = party.getDateTime().minusHours(24);
-                long minutesUntilParty = java.time.Duration.between(now, party.getDateTime()).toMinutes();
-                // Only send if we're past the 24-hour mark but still have more than 1 hour left
-                if (now.isAfter(twentyFourHoursBefore) && minutesUntilParty > 60) {
-                    notificationService.sendPartyReminderNotification(party, "24_HOURS", userIds);
-                    party.setReminder24HoursSent(true);
-                    partyRepository.save(party);
-                }
-                // Mark as sent if it's too late to send (less than 1 hour left)
-                else if (now.isAfter(twentyFourHoursBefore) && minutesUntilParty <= 60) {
-                    party.setReminder24HoursSent(true);
-                    partyRepository.save(party);
-                }
-            }
-            
-            // Check for 1 hour reminder
-            if (!party.isReminder1HourSent() && party.getDateTime() != null) {
-                LocalDateTime oneHourBefore = party.getDateTime().minusHours(1);
-                long minutesUntilParty = java.time.Duration.between(now, party.getDateTime()).toMinutes();
-                // Only send if we're past the 1-hour mark and party hasn't started yet
-                if (now.isAfter(oneHourBefore) && minutesUntilParty > 0) {
-                    notificationService.sendPartyReminderNotification(party, "1_HOUR", userIds);
-                    party.setReminder1HourSent(true);
-                    partyRepository.save(party);
-                }
-                // Mark as sent if party has already started
-                else if (minutesUntilParty <= 0) {
-                    party.setReminder1HourSent(true);
-                    partyRepository.save(party);
-                }
+            try {
+                sendClaimed(claimToken);
+            } catch (Exception e) {
+                System.err.println("Failed to send claimed party reminders: " + e.getMessage());
+                releaseUnstarted(claimToken);
+                break;
             }
-            
-            // Check for party start notification
-            if (!party.isStartNotificationSent() && party.getDateTime() != null) {
-                if (now.isAfter(party.getDateTime()) || now.equals(party.getDateTime())) {
-                    notificationService.sendPartyReminderNotification(party, "STARTING", userIds);
-                    party.setStartNotificationSent(true);
-                    partyRepository.save(party);
-                }
+            if (claimed < BATCH_SIZE) {
+                break;
             }
-            
-            // Check for party end notification
-            if (!party.isEndNotificationSent() && party.getEndDateTime() != null) {
-                if (now.isAfter(party.getEndDateTime()) || now.equals(party.getEndDateTime())) {
-                    notificationService.sendPartyReminderNotification(party, "ENDING", userIds);
-                    party.setEndNotificationSent(true);
-                    partyRepository.save(party);
-                }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reminderSender.shutdown();
+    }
+
+    // Rows of the batch whose send never started go back to PENDING for the next run
+    private void releaseUnstarted(String claimToken) {
+        try {
+            jdbcTemplate.update(RELEASE_UNSTARTED_SQL, claimToken);
+        } catch (Exception e) {
+            // The stale claim check releases them once they are old enough
+            System.err.println("Failed to release party reminder claims: " + e.getMessage());
+        }
+    }
+
+    // One row per reminder: created on first sight, moved back to PENDING when a reschedule makes it due again
+    private void addLedgerRows(List<Object[]> rows, Party party, LocalDateTime now) {
+        LocalDateTime start = party.getDateTime();
+        LocalDateTime end = party.getEndDateTime();
+        // The old per-party flags only decide the state of rows created for existing parties
+        addLedgerRow(rows, party, PartyReminder.ReminderType.THREE_DAYS, party.isReminder3DaysSent(), start.minusDays(3), start.minusHours(24), now);
+        addLedgerRow(rows, party, PartyReminder.ReminderType.TWENTY_FOUR_HOURS, party.isReminder24HoursSent(), start.minusHours(24), start.minusHours(1), now);
+        addLedgerRow(rows, party, PartyReminder.ReminderType.ONE_HOUR, party.isReminder1HourSent(), start.minusHours(1), start, now);
+        addLedgerRow(rows, party, PartyReminder.ReminderType.STARTING, party.isStartNotificationSent(), start, end, now);
+        addLedgerRow(rows, party, PartyReminder.ReminderType.ENDING, party.isEndNotificationSent(), end, end.plusDays(1), now);
+    }
+
+    private static void addLedgerRow(List<Object[]> rows, Party party, PartyReminder.ReminderType type, boolean legacySent,
+                                     LocalDateTime dueAt, LocalDateTime expiresAt, LocalDateTime now) {
+        PartyReminder.Status initial = legacySent ? PartyReminder.Status.SENT : PartyReminder.Status.PENDING;
+        rows.add(new Object[] {
+            party.getId(), type.name(), initial.name(), Timestamp.valueOf(dueAt), Timestamp.valueOf(expiresAt), Timestamp.valueOf(now)
+        });
+    }
+
+    private void sendClaimed(String claimToken) {
+        List<PartyReminder> reminders = partyReminderRepository.findByClaimToken(claimToken);
+
+        // Parties and recipients are read in one short transaction; nothing is held open while sending
+        Map<Long, Party> parties = new HashMap<>();
+        Map<Long, List<Long>> recipients = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> partyIds = reminders.stream().map(PartyReminder::getPartyId).distinct().toList();
+            for (Party party : partyRepository.findAllById(partyIds)) {
+                parties.put(party.getId(), party);
+                recipients.put(party.getId(), getAllPartyUserIds(party));
             }
+        });
+
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        for (PartyReminder reminder : reminders) {
+            Party party = parties.get(reminder.getPartyId());
+            deliveries.add(CompletableFuture.runAsync(
+                () -> deliver(reminder, party, recipients.get(reminder.getPartyId())), reminderSender));
         }
+        CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0])).join();
     }
-    
+
+    private void deliver(PartyReminder reminder, Party party, List<Long> userIds) {
+        if (party == null || party.getStatus() == Party.PartyStatus.CANCELLED) {
+            jdbcTemplate.update(SKIP_SQL, reminder.getId(), reminder.getClaimToken());
+            return;
+        }
+        if (jdbcTemplate.update(MARK_STARTED_SQL, Timestamp.valueOf(LocalDateTime.now()), reminder.getId(), reminder.getClaimToken()) != 1) {
+            return;
+        }
+        try {
+            notificationService.sendPartyReminderNotification(party, reminder.getReminderType().getNotificationKey(), userIds);
+        } catch (Exception e) {
+            // Nothing went out, so it is safe to hand the reminder back for the next run
+            System.err.println("Failed to send " + reminder.getReminderType() + " reminder for party " + party.getId() + ": " + e.getMessage());
+            jdbcTemplate.update(RELEASE_SQL, reminder.getId(), reminder.getClaimToken());
+            return;
+        }
+        jdbcTemplate.update(MARK_SENT_SQL, Timestamp.valueOf(LocalDateTime.now()), reminder.getId(), reminder.getClaimToken());
+    }
+
     private List<Long> getAllPartyUserIds(Party party) {
         List<Long> userIds = new ArrayList<>();
 
@@ -154,6 +266,9 @@ public class PartyReminderService {
     @Scheduled(cron = "0 0 0 * * *") // Every day at midnight
     @Transactional
     public void dailyHouseChecks() {
+        if (!leaderLeaseService.isLeader()) {
+            return;
+        }
         checkCleaningFrequency();
         checkBirthdayReminders();
     }
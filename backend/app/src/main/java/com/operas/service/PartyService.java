@@ -1,11 +1,17 @@
 package com.operas.service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,6 +25,7 @@ import com.operas.repository.GuestStatusRepository;
 import com.operas.repository.LogRepository;
 import com.operas.exceptions.BadRequestException;
 import com.operas.exceptions.UserNotFoundException;
+import com.operas.dto.GuestStatusDto;
 import com.operas.dto.PartyDto;
 
 @Service
@@ -31,6 +38,16 @@ public class PartyService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // IDENTITY ids keep Hibernate from batching inserts, so bulk guest changes go through JDBC batches
+    private static final String INSERT_GUEST_SQL =
+        "INSERT INTO guest_statuses (party_id, user_id, status) VALUES (?, ?, ?)";
+
+    private static final String INSERT_LOG_SQL =
+        "INSERT INTO logs (user_id, message, log_type, target_user_id, party_id, timestamp) VALUES (?, ?, ?, ?, ?, ?)";
+
     @Autowired
     public PartyService(PartyRepository partyRepository, UserRepository userRepository, 
                        GuestStatusRepository guestStatusRepository, LogRepository logRepository) {
@@ -41,11 +58,9 @@ public class PartyService {
     }
 
     public List<PartyDto> getParties(User user) {
-        List<Party> parties = partyRepository.findAll();
         LocalDateTime now = LocalDateTime.now();
-
         // Update automatic statuses before filtering
-        parties.forEach(party -> updateAutomaticStatus(party, now));
+        List<Party> parties = findAllWithCurrentStatus(now);
 
         switch (user.getType()) {
             case KNOWLEDGER:
@@ -75,6 +90,13 @@ public class PartyService {
         }
     }
 
+    // Every party, with the status implied by its start and end brought up to date
+    public List<Party> findAllWithCurrentStatus(LocalDateTime now) {
+        List<Party> parties = partyRepository.findAll();
+        parties.forEach(party -> updateAutomaticStatus(party, now));
+        return parties;
+    }
+
     protected void updateAutomaticStatus(Party party, LocalDateTime now) {
         // Don't override CANCELLED or COMPLETED status
         if (party.getStatus() == Party.PartyStatus.CANCELLED || party.getStatus() == Party.PartyStatus.COMPLETED) {
@@ -147,16 +169,19 @@ public class PartyService {
         Party saved = partyRepository.save(party);
 
         // Log party creation
-        logRepository.save(new Log("User " + user.getUsername() + " created party: " + party.getName() + " (" + party.getType() + ")", user, "PARTY_CREATED"));
+        logRepository.save(new Log("User " + user.getUsername() + " created party: " + party.getName() + " (" + party.getType() + ")", user, Log.LogType.PARTY_CREATED)
+            .withParty(saved.getId()));
         
         // All guests start as UNDECIDED, ignore any status sent in DTO
-        List<GuestStatus> guestStatuses = partyDto.getGuests().stream()
-            .map(dto -> {
-                if (dto.getUser() == null || dto.getUser().getId() == null) {
-                    throw new BadRequestException("Each guest must have a valid user.");
-                }
-                User guestUser = userRepository.findById(dto.getUser().getId())
-                        .orElseThrow(() -> new BadRequestException("Guest user with ID " + dto.getUser().getId() + " not found."));
+        Set<Long> guestIds = new LinkedHashSet<>();
+        for (GuestStatusDto dto : partyDto.getGuests()) {
+            if (dto.getUser() == null || dto.getUser().getId() == null) {
+                throw new BadRequestException("Each guest must have a valid user.");
+            }
+            guestIds.add(dto.getUser().getId());
+        }
+        List<GuestStatus> guestStatuses = findUsers(guestIds).stream()
+            .map(guestUser -> {
                 GuestStatus guestStatus = new GuestStatus();
                 guestStatus.setParty(saved);
                 guestStatus.setUser(guestUser);
@@ -197,7 +222,9 @@ public class PartyService {
             "Knowledger " + user.getUsername() + " deleted party: " + party.getName() + " hosted by " + party.getHost().getUsername() :
             "User " + user.getUsername() + " deleted their party: " + party.getName();
         
-        logRepository.save(new Log(logMessage, user, "PARTY_DELETED"));
+        logRepository.save(new Log(logMessage, user, Log.LogType.PARTY_DELETED)
+            .withParty(party.getId())
+            .withTarget(party.getHost().getId()));
         
         partyRepository.deleteById(id);
     }
@@ -261,7 +288,9 @@ public class PartyService {
             "Knowledger " + requester.getUsername() + " changed party status from " + oldStatus + " to " + newStatus + " for party: " + party.getName() :
             "User " + requester.getUsername() + " changed party status from " + oldStatus + " to " + newStatus + " for party: " + party.getName();
         
-        logRepository.save(new Log(logMessage, requester, "PARTY_STATUS_CHANGED"));
+        logRepository.save(new Log(logMessage, requester, Log.LogType.PARTY_STATUS_CHANGED)
+            .withParty(party.getId())
+            .withChange(oldStatus, newStatus));
 
         // Notify host and guests about the status change
         List<Long> recipientIds = new ArrayList<>();
@@ -317,7 +346,10 @@ public class PartyService {
             logMessage = "Knowledger " + requester.getUsername() + " changed user " + targetUser.getUsername() + " status from " + oldStatus + " to " + newStatus + " for party: " + party.getName();
         }
         
-        logRepository.save(new Log(logMessage, requester, "GUEST_STATUS_CHANGED"));
+        logRepository.save(new Log(logMessage, requester, Log.LogType.GUEST_STATUS_CHANGED)
+            .withParty(party.getId())
+            .withTarget(targetUser.getId())
+            .withChange(oldStatus, newStatus));
     }
 
     @Transactional
@@ -363,7 +395,9 @@ public class PartyService {
             "Knowledger " + requester.getUsername() + " added guest " + guestUser.getUsername() + " to party: " + party.getName() :
             "Host " + requester.getUsername() + " added guest " + guestUser.getUsername() + " to party: " + party.getName();
         
-        logRepository.save(new Log(logMessage, requester, "GUEST_ADDED"));
+        logRepository.save(new Log(logMessage, requester, Log.LogType.GUEST_ADDED)
+            .withParty(party.getId())
+            .withTarget(guestUser.getId()));
 
         // Send invitation notification to the new guest
         List<Long> guestUserIds = List.of(guestUserId);
@@ -410,7 +444,112 @@ public class PartyService {
             "Knowledger " + requester.getUsername() + " removed guest " + guestUser.getUsername() + " from party: " + party.getName() :
             "Host " + requester.getUsername() + " removed guest " + guestUser.getUsername() + " from party: " + party.getName();
         
-        logRepository.save(new Log(logMessage, requester, "GUEST_REMOVED"));
+        logRepository.save(new Log(logMessage, requester, Log.LogType.GUEST_REMOVED)
+            .withParty(party.getId())
+            .withTarget(guestUser.getId()));
+    }
+
+    /**
+     * Adds and removes several guests at once. Users already invited or not invited are skipped,
+     * all new guests get a single invitation notification.
+     */
+    @Transactional
+    public Map<String, Integer> updateGuests(Long partyId, User requester, List<Long> addUserIds, List<Long> removeUserIds) {
+        Party party = partyRepository.findById(partyId)
+            .orElseThrow(() -> new IllegalArgumentException("Party not found"));
+
+        boolean isHost = party.getHost().getId().equals(requester.getId());
+        boolean isKnowledger = requester.getType() == User.UserType.KNOWLEDGER;
+
+        // Only host or KNOWLEDGER can change guests
+        if (!isHost && !isKnowledger) {
+            throw new BadRequestException("Only the host or a KNOWLEDGER can change the guests of the party.");
+        }
+        if (isHost && !isKnowledger && requester.isMuted()) {
+            throw new BadRequestException("You are muted and cannot change the guests of the party.");
+        }
+
+        Set<Long> toAdd = addUserIds == null ? new LinkedHashSet<>() : new LinkedHashSet<>(addUserIds);
+        Set<Long> toRemove = removeUserIds == null ? new HashSet<>() : new HashSet<>(removeUserIds);
+        if (toAdd.contains(null) || toRemove.contains(null)) {
+            throw new BadRequestException("Guest user ids cannot be null.");
+        }
+        if (toAdd.contains(party.getHost().getId()) || toRemove.contains(party.getHost().getId())) {
+            throw new BadRequestException("The host is automatically part of the party.");
+        }
+        if (toAdd.stream().anyMatch(toRemove::contains)) {
+            throw new BadRequestException("A user cannot be both added and removed.");
+        }
+
+        Set<Long> currentGuestIds = new HashSet<>();
+        List<Long> removedStatusIds = new ArrayList<>();
+        List<Log> logs = new ArrayList<>();
+        for (GuestStatus guestStatus : party.getGuests()) {
+            User guestUser = guestStatus.getUser();
+            currentGuestIds.add(guestUser.getId());
+            if (toRemove.contains(guestUser.getId())) {
+                removedStatusIds.add(guestStatus.getId());
+                logs.add(new Log(guestChangeMessage(requester, isHost, isKnowledger, "removed", "from", guestUser, party), requester, Log.LogType.GUEST_REMOVED)
+                    .withParty(party.getId())
+                    .withTarget(guestUser.getId()));
+            }
+        }
+        toAdd.removeAll(currentGuestIds);
+
+        List<GuestStatus> added = new ArrayList<>();
+        for (User guestUser : findUsers(toAdd)) {
+            GuestStatus guestStatus = new GuestStatus();
+            guestStatus.setParty(party);
+            guestStatus.setUser(guestUser);
+            guestStatus.setStatus(GuestStatus.Status.UNDECIDED);
+            added.add(guestStatus);
+            logs.add(new Log(guestChangeMessage(requester, isHost, isKnowledger, "added", "to", guestUser, party), requester, Log.LogType.GUEST_ADDED)
+                .withParty(party.getId())
+                .withTarget(guestUser.getId()));
+        }
+
+        if (!removedStatusIds.isEmpty()) {
+            guestStatusRepository.deleteAllByIdInBatch(removedStatusIds);
+        }
+        jdbcTemplate.batchUpdate(INSERT_GUEST_SQL, added.stream()
+            .map(gs -> new Object[] { party.getId(), gs.getUser().getId(), gs.getStatus().name() })
+            .toList());
+        jdbcTemplate.batchUpdate(INSERT_LOG_SQL, logs.stream()
+            .map(log -> new Object[] {
+                log.getUser().getId(), log.getMessage(), log.getLogType().name(),
+                log.getTargetUserId(), log.getPartyId(), Timestamp.valueOf(log.getTimestamp())
+            })
+            .toList());
+
+        if (!added.isEmpty()) {
+            notificationService.sendPartyInvitationNotification(
+                party.getName(),
+                party.getDateTime(),
+                added.stream().map(gs -> gs.getUser().getId()).toList(),
+                party.getId()
+            );
+        }
+
+        return Map.of("added", added.size(), "removed", removedStatusIds.size());
+    }
+
+    // Loads all users in one query, in the order of the ids
+    private List<User> findUsers(Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+            .collect(Collectors.toMap(User::getId, user -> user));
+        List<Long> missing = userIds.stream().filter(id -> !users.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new BadRequestException("Guest users not found: " + missing);
+        }
+        return userIds.stream().map(users::get).toList();
+    }
+
+    private static String guestChangeMessage(User requester, boolean isHost, boolean isKnowledger, String action, String preposition, User guestUser, Party party) {
+        String actor = isKnowledger && !isHost ? "Knowledger " : "Host ";
+        return actor + requester.getUsername() + " " + action + " guest " + guestUser.getUsername() + " " + preposition + " party: " + party.getName();
     }
 
     @Transactional
@@ -459,9 +598,6 @@ public class PartyService {
         party.setDateTime(newStartDateTime);
         party.setEndDateTime(newEndDateTime);
 
-        // Reset notification flags based on new schedule
-        resetNotificationFlags(party, now);
-
         Party saved = partyRepository.save(party);
 
         // Log schedule change
@@ -469,7 +605,9 @@ public class PartyService {
             "Knowledger " + requester.getUsername() + " changed party schedule for: " + party.getName() :
             "Host " + requester.getUsername() + " changed party schedule for: " + party.getName();
         
-        logRepository.save(new Log(logMessage, requester, "PARTY_SCHEDULE_CHANGED"));
+        logRepository.save(new Log(logMessage, requester, Log.LogType.PARTY_SCHEDULE_CHANGED)
+            .withParty(party.getId())
+            .withChange(oldStartDateTime + " - " + oldEndDateTime, newStartDateTime + " - " + newEndDateTime));
 
         // Notify host and guests about the schedule change
         List<Long> recipientIds = new ArrayList<>();
@@ -488,36 +626,6 @@ public class PartyService {
         return PartyDto.fromEntity(saved);
     }
 
-    private void resetNotificationFlags(Party party, LocalDateTime now) {
-        LocalDateTime newStartDateTime = party.getDateTime();
-        LocalDateTime newEndDateTime = party.getEndDateTime();
-
-        // Reset 3 days reminder if new start time is more than 3 days away
-        if (newStartDateTime.isAfter(now.plusDays(3))) {
-            party.setReminder3DaysSent(false);
-        }
-
-        // Reset 24 hours reminder if new start time is more than 24 hours away
-        if (newStartDateTime.isAfter(now.plusHours(24))) {
-            party.setReminder24HoursSent(false);
-        }
-
-        // Reset 1 hour reminder if new start time is more than 1 hour away
-        if (newStartDateTime.isAfter(now.plusHours(1))) {
-            party.setReminder1HourSent(false);
-        }
-
-        // Reset start notification if party hasn't started yet
-        if (newStartDateTime.isAfter(now)) {
-            party.setStartNotificationSent(false);
-        }
-
-        // Reset end notification if party hasn't ended yet
-        if (newEndDateTime.isAfter(now)) {
-            party.setEndNotificationSent(false);
-        }
-    }
-
     @Transactional
     public PartyDto updatePartyRooms(Long partyId, User requester, List<Party.Room> newRooms) {
         Party party = partyRepository.findById(partyId)
@@ -565,7 +673,9 @@ public class PartyService {
             "Knowledger " + requester.getUsername() + " changed party rooms from [" + oldRoomsStr + "] to [" + newRoomsStr + "] for party: " + party.getName() :
             "Host " + requester.getUsername() + " changed party rooms from [" + oldRoomsStr + "] to [" + newRoomsStr + "] for party: " + party.getName();
         
-        logRepository.save(new Log(logMessage, requester, "PARTY_ROOMS_CHANGED"));
+        logRepository.save(new Log(logMessage, requester, Log.LogType.PARTY_ROOMS_CHANGED)
+            .withParty(party.getId())
+            .withChange(oldRoomsStr, newRoomsStr));
 
         return PartyDto.fromEntity(saved);
     }
@@ -1,39 +1,340 @@
 package com.operas.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.operas.exceptions.RoutingException;
 import com.operas.exceptions.BadRequestException;
+import com.operas.utils.CircuitBreaker;
+import com.operas.utils.GeoUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RoutingService {
 
     private static final String OSRM_BASE_URL = "http://10.0.0.33:5000";
 
+    // Faster than anyone walks, so distance / speed is a safe lower bound on the walking time
+    private static final double MAX_WALKING_SPEED_MPS = 2.5;
+
     @Value("${routing.destination.lat}")
     private double destinationLat;
 
     @Value("${routing.destination.lng}")
     private double destinationLng;
 
-    private final RestTemplate restTemplate;
+    // Travel times are cached per geohash cell of the user position
+    @Value("${routing.cache.precision:8}")
+    private int cachePrecision;
+
+    @Value("${routing.cache.ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    @Value("${routing.cache.max-entries:1000}")
+    private int cacheMaxEntries;
+
+    // Closer than this to the destination counts as at the door without asking OSRM
+    @Value("${routing.precheck.at-door-meters:15}")
+    private double atDoorMeters;
+
+    // Consecutive OSRM failures before routing is switched off, and for how long
+    @Value("${routing.circuit.failure-threshold:3}")
+    private int circuitFailureThreshold;
+
+    @Value("${routing.circuit.open-seconds:30}")
+    private long circuitOpenSeconds;
+
+    @Autowired
+    @Qualifier("osrmRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private final ObjectMapper objectMapper;
 
+    private CircuitBreaker circuitBreaker;
+
+    // Walking time from the door that still opens the inner door, and the isochrone built for it
+    @Value("${routing.isochrone.seconds:120}")
+    private double isochroneSeconds;
+
+    @Value("${routing.isochrone.bearings:36}")
+    private int isochroneBearings;
+
+    @Value("${routing.isochrone.step-meters:10}")
+    private double isochroneStepMeters;
+
+    @Value("${routing.isochrone.refresh-ms:86400000}")
+    private long isochroneRefreshMs;
+
+    // Until the first isochrone is built (OSRM may still be starting), retry this often
+    @Value("${routing.isochrone.retry-ms:60000}")
+    private long isochroneRetryMs;
+
+    // The refresh makes one OSRM call per bearing, keep it off the shared scheduling thread
+    private final ScheduledExecutorService isochroneRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "isochrone-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record CachedTravelTime(double seconds, long expiresAt) {}
+
+    // Vertices of the walking isochrone around the destination, one per bearing
+    private record Isochrone(double[] lats, double[] lngs) {}
+
+    private volatile Isochrone isochrone;
+
+    // Access ordered, so the eldest entry is the least recently used; guarded by "this"
+    private final LinkedHashMap<String, CachedTravelTime> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedTravelTime> eldest) {
+            return size() > cacheMaxEntries;
+        }
+    };
+
     public RoutingService() {
-        this.restTemplate = new RestTemplate();
         this.objectMapper = new ObjectMapper();
     }
 
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(circuitFailureThreshold, circuitOpenSeconds * 1000);
+        meterRegistry.gauge("routing.circuit.open", circuitBreaker,
+                breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        isochroneRefresher.schedule(this::refreshIsochrone, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        isochroneRefresher.shutdownNow();
+    }
+
     public Double getTravelTime(double userLat, double userLng) {
+        String cell = GeoUtils.geohash(userLat, userLng, cachePrecision);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CachedTravelTime cached = cache.get(cell);
+            if (cached != null && cached.expiresAt() > now) {
+                meterRegistry.counter("routing.cache", "result", "hit").increment();
+                return cached.seconds();
+            }
+        }
+        meterRegistry.counter("routing.cache", "result", "miss").increment();
+
+        double seconds = requestTravelTime(userLat, userLng);
+        synchronized (this) {
+            cache.put(cell, new CachedTravelTime(seconds, now + cacheTtlMinutes * 60_000));
+        }
+        return seconds;
+    }
+
+    // Travel times for many origins at once: cached cells are answered directly and the rest share one table request
+    public Double[] getTravelTimes(double[] lats, double[] lngs) {
+        Double[] result = new Double[lats.length];
+        String[] cells = new String[lats.length];
+        long now = System.currentTimeMillis();
+
+        // First origin seen in each uncached cell, the others in the cell reuse its answer
+        Map<String, Integer> missing = new LinkedHashMap<>();
+        synchronized (this) {
+            for (int i = 0; i < lats.length; i++) {
+                cells[i] = GeoUtils.geohash(lats[i], lngs[i], cachePrecision);
+                CachedTravelTime cached = cache.get(cells[i]);
+                if (cached != null && cached.expiresAt() > now) {
+                    result[i] = cached.seconds();
+                } else {
+                    missing.putIfAbsent(cells[i], i);
+                }
+            }
+        }
+        int misses = countMissing(result);
+        meterRegistry.counter("routing.cache", "result", "hit").increment(lats.length - misses);
+        meterRegistry.counter("routing.cache", "result", "miss").increment(misses);
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        double[] missingLats = new double[missing.size()];
+        double[] missingLngs = new double[missing.size()];
+        int n = 0;
+        for (int index : missing.values()) {
+            missingLats[n] = lats[index];
+            missingLngs[n] = lngs[index];
+            n++;
+        }
+
+        Double[] durations;
+        try {
+            durations = requestTableDurations(missingLats, missingLngs);
+        } catch (RoutingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        Map<String, Double> fetched = new LinkedHashMap<>();
+        n = 0;
+        synchronized (this) {
+            for (String cell : missing.keySet()) {
+                Double seconds = durations[n++];
+                fetched.put(cell, seconds);
+                if (seconds != null) {
+                    cache.put(cell, new CachedTravelTime(seconds, now + cacheTtlMinutes * 60_000));
+                }
+            }
+        }
+        for (int i = 0; i < lats.length; i++) {
+            if (result[i] == null) {
+                result[i] = fetched.get(cells[i]);
+            }
+        }
+        return result;
+    }
+
+    private static int countMissing(Double[] values) {
+        int missing = 0;
+        for (Double value : values) {
+            if (value == null) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    // Decides from the straight-line distance when the answer is obvious, otherwise asks OSRM (cached)
+    public boolean isWithinWalkingTime(double userLat, double userLng, double maxSeconds) {
+        double distance = GeoUtils.haversineMeters(userLat, userLng, destinationLat, destinationLng);
+        if (distance <= atDoorMeters) {
+            return true;
+        }
+        if (distance / MAX_WALKING_SPEED_MPS >= maxSeconds) {
+            return false;
+        }
+        return getTravelTime(userLat, userLng) < maxSeconds;
+    }
+
+    // Inner door check answered from the precomputed isochrone, falling back to OSRM until it is available
+    public boolean isWithinInnerDoorRange(double userLat, double userLng) {
+        Isochrone current = isochrone;
+        if (current != null) {
+            return GeoUtils.containsPoint(current.lats(), current.lngs(), userLat, userLng);
+        }
+        return isWithinWalkingTime(userLat, userLng, isochroneSeconds);
+    }
+
+    // Runs right after startup, every minute until it succeeds, then daily; off the request path
+    private void refreshIsochrone() {
+        try {
+            // Nobody walks further than this in the time limit, so each ray can stop there
+            double maxRadius = isochroneSeconds * MAX_WALKING_SPEED_MPS;
+            int samples = (int) Math.ceil(maxRadius / isochroneStepMeters);
+            double[] lats = new double[isochroneBearings];
+            double[] lngs = new double[isochroneBearings];
+
+            for (int b = 0; b < isochroneBearings; b++) {
+                double bearing = 360.0 * b / isochroneBearings;
+                double[] durations = requestRayDurations(bearing, samples);
+                double radius = isochroneRadius(durations);
+                double[] vertex = GeoUtils.offset(destinationLat, destinationLng, bearing, radius);
+                lats[b] = vertex[0];
+                lngs[b] = vertex[1];
+            }
+
+            isochrone = new Isochrone(lats, lngs);
+            System.out.println("Walking isochrone of " + (int) isochroneSeconds + "s refreshed with " + isochroneBearings + " vertices");
+        } catch (Exception e) {
+            System.err.println("Failed to refresh walking isochrone: " + e.getMessage());
+        }
+        if (!isochroneRefresher.isShutdown()) {
+            isochroneRefresher.schedule(this::refreshIsochrone,
+                isochrone == null ? isochroneRetryMs : isochroneRefreshMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Distance along a ray where the walking time crosses the limit, interpolated between samples
+    private double isochroneRadius(double[] durations) {
+        double previousRadius = 0;
+        double previousDuration = 0;
+        for (int i = 0; i < durations.length; i++) {
+            double radius = (i + 1) * isochroneStepMeters;
+            if (durations[i] >= isochroneSeconds) {
+                double fraction = (isochroneSeconds - previousDuration) / Math.max(durations[i] - previousDuration, 1e-9);
+                return previousRadius + Math.min(1, Math.max(0, fraction)) * (radius - previousRadius);
+            }
+            previousRadius = radius;
+            previousDuration = durations[i];
+        }
+        return previousRadius;
+    }
+
+    // Walking times to the destination from evenly spaced points along one bearing, in a single OSRM table request
+    private double[] requestRayDurations(double bearing, int samples) throws Exception {
+        double[] lats = new double[samples];
+        double[] lngs = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            double[] point = GeoUtils.offset(destinationLat, destinationLng, bearing, (i + 1) * isochroneStepMeters);
+            lats[i] = point[0];
+            lngs[i] = point[1];
+        }
+
+        Double[] table = requestTableDurations(lats, lngs);
+        double[] durations = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            // Unreachable points count as too far
+            durations[i] = table[i] == null ? Double.MAX_VALUE : table[i];
+        }
+        return durations;
+    }
+
+    // Walking times from many origins to the destination in one OSRM table request, null where there is no route
+    private Double[] requestTableDurations(double[] lats, double[] lngs) throws Exception {
+        StringBuilder coordinates = new StringBuilder(String.format("%f,%f", destinationLng, destinationLat));
+        StringBuilder sources = new StringBuilder();
+        for (int i = 0; i < lats.length; i++) {
+            coordinates.append(String.format(";%f,%f", lngs[i], lats[i]));
+            sources.append(i == 0 ? "" : ";").append(i + 1);
+        }
+        String url = String.format("%s/table/v1/foot/%s?sources=%s&destinations=0",
+                OSRM_BASE_URL, coordinates, sources);
+
+        JsonNode table = objectMapper.readTree(osrmGet("table", url));
+        JsonNode rows = table.get("durations");
+        if (rows == null || rows.size() != lats.length) {
+            throw new RoutingException("Unexpected OSRM table response");
+        }
+
+        Double[] durations = new Double[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            JsonNode duration = rows.get(i).get(0);
+            durations[i] = duration == null || duration.isNull() ? null : duration.asDouble();
+        }
+        return durations;
+    }
+
+    private double requestTravelTime(double userLat, double userLng) {
         try {
             String url = String.format("%s/route/v1/foot/%f,%f;%f,%f?overview=false&geometries=geojson",
                     OSRM_BASE_URL, userLng, userLat, destinationLng, destinationLat);
 
-            String response = restTemplate.getForObject(url, String.class);
+            String response = osrmGet("route", url);
             JsonNode jsonNode = objectMapper.readTree(response);
 
             if (jsonNode.has("routes") && jsonNode.get("routes").size() > 0) {
@@ -48,4 +349,35 @@ public class RoutingService {
             throw new BadRequestException(e.getMessage());
         }
     }
+
+    // Every OSRM call goes through the circuit breaker and is timed per service and outcome
+    private String osrmGet(String service, String url) {
+        if (!circuitBreaker.allowRequest()) {
+            meterRegistry.counter("routing.requests.rejected", "service", service).increment();
+            throw new RoutingException("Routing is temporarily unavailable");
+        }
+
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            String response = restTemplate.getForObject(url, String.class);
+            circuitBreaker.recordSuccess();
+            outcome = "success";
+            return response;
+        } catch (HttpClientErrorException e) {
+            // OSRM answers 400 for points it cannot route, the server itself is fine
+            circuitBreaker.recordSuccess();
+            outcome = "no_route";
+            throw e;
+        } catch (RestClientException e) {
+            circuitBreaker.recordFailure();
+            if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                System.err.println("OSRM unavailable, routing disabled for " + circuitOpenSeconds + "s: " + e.getMessage());
+            }
+            throw e;
+        } finally {
+            meterRegistry.timer("routing.request", "service", service, "outcome", outcome)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
 }
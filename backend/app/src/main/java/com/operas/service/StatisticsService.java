@@ -1,36 +1,264 @@
 package com.operas.service;
 
-import com.operas.model.EnvironmentData;
-import com.operas.repository.EnvironmentDataRepository;
+import com.operas.dto.EnvironmentPointDto;
+import com.operas.dto.MetricPointDto;
+import com.operas.model.DeviceStatusRun;
+import com.operas.model.EnvironmentRollup;
+import com.operas.model.User;
+import com.operas.repository.DeviceStatusRunRepository;
+import com.operas.repository.DoorActivityRollupRepository;
+import com.operas.exceptions.BadRequestException;
+import com.operas.utils.MinMaxDownsampler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class StatisticsService {
 
+    public enum DoorOutcome {
+        OPENED,
+        INNER_OPENED,
+        FAILED,
+        ERROR
+    }
+
+    // API metric names (EnvironmentData fields) to environment_data columns
+    private static final Map<String, String> METRIC_COLUMNS = Map.of(
+        "temperature", "temperature",
+        "humidity", "humidity",
+        "pressure", "pressure",
+        "altitude", "altitude",
+        "airQualityIndex", "air_quality_index",
+        "tvocPpb", "tvoc_ppb",
+        "eco2Ppm", "eco2_ppm"
+    );
+
+    private static final int MAX_POINTS = 2000;
+
     @Autowired
-    private EnvironmentDataRepository environmentDataRepository;
+    private EnvironmentRollupService environmentRollupService;
 
-    public List<EnvironmentData> getRecentEnvironmentData(int hours) {
-        LocalDateTime since = LocalDateTime.now().minusHours(hours);
-        List<EnvironmentData> allData = environmentDataRepository.findByCreatedAtAfterOrderByCreatedAtAsc(since);
+    @Autowired
+    private EnvironmentHistoryService environmentHistoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
-        if (allData.size() <= 100) {
-            return allData;
+    @Autowired
+    private DoorActivityRollupRepository doorActivityRollupRepository;
+
+    @Autowired
+    private DeviceStatusRunRepository deviceStatusRunRepository;
+
+    public List<EnvironmentPointDto> getRecentEnvironmentData(int hours) {
+        if (hours <= 0) {
+            throw new BadRequestException("Hours must be positive");
         }
+        // Served from the pre-aggregated rollups at a resolution picked for the window
+        return environmentRollupService.getRollups(hours).stream()
+            .map(EnvironmentPointDto::fromRollup)
+            .toList();
+    }
 
-        List<EnvironmentData> result = new ArrayList<>();
-        double step = (double) allData.size() / 100;
+    public List<MetricPointDto> getDownsampledEnvironmentData(String metric, int hours, int points) {
+        String column = METRIC_COLUMNS.get(metric);
+        if (column == null) {
+            throw new BadRequestException("Unknown metric: " + metric);
+        }
+        if (hours <= 0) {
+            throw new BadRequestException("Hours must be positive");
+        }
+        if (points < 2 || points > MAX_POINTS) {
+            throw new BadRequestException("Points must be between 2 and " + MAX_POINTS);
+        }
+
+        LocalDateTime end = LocalDateTime.now();
+        LocalDateTime since = end.minusHours(hours);
+        long sinceMillis = Timestamp.valueOf(since).getTime();
+        // Every bucket contributes up to two points (its min and its max)
+        MinMaxDownsampler downsampler = new MinMaxDownsampler(sinceMillis, Timestamp.valueOf(end).getTime(), points / 2);
+
+        if (environmentHistoryService.covers(sinceMillis)) {
+            // Short windows come straight from the full-resolution in-memory history
+            environmentHistoryService.forEach(column, sinceMillis, downsampler::add);
+        } else {
+            // Forward-only cursor over the bucket extremes of the finest rollups kept for the window
+            EnvironmentRollup.Resolution resolution = environmentRollupService.finestResolutionFor(hours);
+            String sql = "SELECT bucket_start, " + column + "_min, " + column + "_max FROM environment_rollups "
+                       + "WHERE resolution = ? AND bucket_start >= ? AND " + column + "_min IS NOT NULL ORDER BY bucket_start";
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(1000);
+                statement.setString(1, resolution.name());
+                statement.setTimestamp(2, Timestamp.valueOf(since));
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                long bucketStart = rs.getTimestamp(1).getTime();
+                downsampler.add(bucketStart, rs.getDouble(2));
+                downsampler.add(bucketStart, rs.getDouble(3));
+            });
+        }
+
+        return downsampler.result().stream()
+            .map(point -> new MetricPointDto(new Timestamp(point.timestamp()).toLocalDateTime(), point.value()))
+            .toList();
+    }
+
+    public List<EnvironmentPointDto> getLiveEnvironmentData(int minutes) {
+        if (minutes <= 0) {
+            throw new BadRequestException("Minutes must be positive");
+        }
+        long since = System.currentTimeMillis() - minutes * 60_000L;
+        return environmentHistoryService.getSamples(since);
+    }
 
-        for (int i = 0; i < 100; i++) {
-            int index = (int) (i * step);
-            result.add(allData.get(index));
+    public void recordDoorActivity(User user, DoorOutcome outcome) {
+        LocalDateTime bucketStart = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        try {
+            doorActivityRollupRepository.increment(
+                bucketStart,
+                user.getId(),
+                outcome == DoorOutcome.OPENED ? 1 : 0,
+                outcome == DoorOutcome.INNER_OPENED ? 1 : 0,
+                outcome == DoorOutcome.FAILED ? 1 : 0,
+                outcome == DoorOutcome.ERROR ? 1 : 0
+            );
+        } catch (Exception e) {
+            // Statistics must never break the door path
+            System.err.println("Failed to record door activity: " + e.getMessage());
         }
+    }
 
+    public Map<String, Object> getDoorStatistics(User user, int days) {
+        if (user.getType() != User.UserType.KNOWLEDGER) {
+            throw new BadRequestException("Only Knowledgers can access door statistics");
+        }
+        if (days <= 0) {
+            throw new BadRequestException("Days must be positive");
+        }
+
+        LocalDateTime since = LocalDateTime.now().minusDays(days).truncatedTo(ChronoUnit.HOURS);
+
+        long totalOpens = 0;
+        long totalInnerOpens = 0;
+        long totalFailures = 0;
+        long totalErrors = 0;
+
+        // 7 x 24 matrix indexed by [dayOfWeek - 1][hour], Sunday first (MariaDB DAYOFWEEK)
+        long[][] heatmap = new long[7][24];
+        for (Object[] row : doorActivityRollupRepository.sumByDayOfWeekAndHour(since)) {
+            int dayOfWeek = ((Number) row[0]).intValue();
+            int hour = ((Number) row[1]).intValue();
+            long opens = ((Number) row[2]).longValue();
+            long innerOpens = ((Number) row[3]).longValue();
+            long failures = ((Number) row[4]).longValue();
+            long errors = ((Number) row[5]).longValue();
+
+            heatmap[dayOfWeek - 1][hour] = opens;
+            totalOpens += opens;
+            totalInnerOpens += innerOpens;
+            totalFailures += failures;
+            totalErrors += errors;
+        }
+
+        List<Map<String, Object>> perUser = new ArrayList<>();
+        for (Object[] row : doorActivityRollupRepository.sumByUser(since)) {
+            long opens = ((Number) row[2]).longValue();
+            long innerOpens = ((Number) row[3]).longValue();
+            long failures = ((Number) row[4]).longValue();
+            long errors = ((Number) row[5]).longValue();
+
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("userId", ((Number) row[0]).longValue());
+            entry.put("username", row[1]);
+            entry.put("opens", opens);
+            entry.put("innerOpens", innerOpens);
+            entry.put("failures", failures);
+            entry.put("errors", errors);
+            entry.put("failureRate", failureRate(opens, innerOpens, failures, errors));
+            perUser.add(entry);
+        }
+        perUser.sort((a, b) -> Long.compare((long) b.get("opens"), (long) a.get("opens")));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("days", days);
+        result.put("opens", totalOpens);
+        result.put("innerOpens", totalInnerOpens);
+        result.put("failures", totalFailures);
+        result.put("errors", totalErrors);
+        result.put("failureRate", failureRate(totalOpens, totalInnerOpens, totalFailures, totalErrors));
+        result.put("heatmap", heatmap);
+        result.put("users", perUser);
+        return result;
+    }
+
+    public Map<String, Object> getDeviceAvailability(int days) {
+        if (days <= 0) {
+            throw new BadRequestException("Days must be positive");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusDays(days);
+
+        long onlineSeconds = 0;
+        long offlineSeconds = 0;
+        long longestOutageSeconds = 0;
+        List<Map<String, Object>> outages = new ArrayList<>();
+
+        // Each run is one uninterrupted state, clipped to the window; the open run lasts until now
+        for (DeviceStatusRun run : deviceStatusRunRepository.findOverlapping(since)) {
+            LocalDateTime start = run.getStartedAt().isBefore(since) ? since : run.getStartedAt();
+            LocalDateTime end = run.getEndedAt() == null || run.getEndedAt().isAfter(now) ? now : run.getEndedAt();
+            if (!end.isAfter(start)) {
+                continue;
+            }
+
+            long seconds = Duration.between(start, end).getSeconds();
+            if (run.getStatus() == DeviceStatusRun.Status.ONLINE) {
+                onlineSeconds += seconds;
+            } else {
+                offlineSeconds += seconds;
+                longestOutageSeconds = Math.max(longestOutageSeconds, seconds);
+
+                Map<String, Object> outage = new HashMap<>();
+                outage.put("startedAt", run.getStartedAt());
+                outage.put("endedAt", run.getEndedAt());
+                outage.put("durationSeconds", seconds);
+                outages.add(outage);
+            }
+        }
+
+        // Time the backend was not running is neither up nor down
+        long monitoredSeconds = onlineSeconds + offlineSeconds;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("days", days);
+        result.put("availability", monitoredSeconds == 0 ? null : 100.0 * onlineSeconds / monitoredSeconds);
+        result.put("onlineSeconds", onlineSeconds);
+        result.put("offlineSeconds", offlineSeconds);
+        result.put("monitoredSeconds", monitoredSeconds);
+        result.put("outageCount", outages.size());
+        result.put("longestOutageSeconds", longestOutageSeconds);
+        result.put("outages", outages);
         return result;
     }
+
+    // Failures count both doors, so inner opens are attempts too
+    private double failureRate(long opens, long innerOpens, long failures, long errors) {
+        long attempts = opens + innerOpens + failures + errors;
+        return attempts == 0 ? 0.0 : (double) (failures + errors) / attempts;
+    }
 }
@@ -0,0 +1,83 @@
+package com.operas.service;
+
+import com.operas.model.SystemSetting;
+import com.operas.repository.SystemSettingRepository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * System wide flags stored in system_settings so they survive restarts and are shared by every
+ * backend instance. Reads come from an in-memory snapshot; each instance polls the summed row
+ * versions and reloads the snapshot when another instance has written a setting.
+ */
+@Service
+public class SystemSettingsService {
+
+    public static final String MAINTENANCE_ACTIVE = "maintenance_active";
+    public static final String REGISTRATION_BLOCKED = "registration_blocked";
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO system_settings (setting_key, setting_value, version, updated_at) VALUES (?, ?, 1, ?) " +
+        "ON DUPLICATE KEY UPDATE setting_value = VALUES(setting_value), version = version + 1, updated_at = VALUES(updated_at)";
+
+    @Autowired
+    private SystemSettingRepository systemSettingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Replaced as a whole on reload, never modified
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(Map.of(), -1));
+
+    private record Snapshot(Map<String, String> settings, long version) {}
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    public boolean getBoolean(String key) {
+        return Boolean.parseBoolean(snapshot.get().settings().get(key));
+    }
+
+    public void setBoolean(String key, boolean value) {
+        jdbcTemplate.update(UPSERT_SQL, key, String.valueOf(value), Timestamp.valueOf(LocalDateTime.now()));
+        // Visible here at once, the other instances pick it up on their next poll
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${settings.poll-ms:2000}")
+    public void pollForChanges() {
+        try {
+            if (systemSettingRepository.sumVersions() != snapshot.get().version()) {
+                reload();
+            }
+        } catch (Exception e) {
+            // Keep serving the last known values while the database is unavailable
+            System.err.println("Failed to check system settings: " + e.getMessage());
+        }
+    }
+
+    // No lock around the query (it would pin a virtual thread); versions only grow, so when two
+    // reloads race the newer snapshot wins
+    private void reload() {
+        Map<String, String> loaded = new HashMap<>();
+        long version = 0;
+        for (SystemSetting setting : systemSettingRepository.findAll()) {
+            loaded.put(setting.getKey(), setting.getValue());
+            version += setting.getVersion();
+        }
+        Snapshot fresh = new Snapshot(Map.copyOf(loaded), version);
+        snapshot.accumulateAndGet(fresh, (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+    }
+}
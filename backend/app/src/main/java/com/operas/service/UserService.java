@@ -21,6 +21,7 @@ import com.operas.repository.GuestStatusRepository;
 import com.operas.repository.NotificationRepository;
 import com.operas.repository.LogRepository;
 import com.operas.repository.PasswordResetRequestRepository;
+import com.operas.repository.DoorActivityRollupRepository;
 import com.operas.model.Party;
 import com.operas.exceptions.UserDeletionException;
 import org.springframework.transaction.annotation.Transactional;
@@ -51,6 +52,9 @@ public class UserService {
 
     @Autowired
     private PasswordResetRequestRepository passwordResetRequestRepository;
+
+    @Autowired
+    private DoorActivityRollupRepository doorActivityRollupRepository;
     
     public User registerUser(User user) {
         // Check if username already exists
@@ -62,7 +66,7 @@ public class UserService {
         User savedUser = userRepository.save(user);
         
         // Log the registration
-        logRepository.save(new Log("User registered: " + user.getUsername(), savedUser, "REGISTRATION"));
+        logRepository.save(new Log("User registered: " + user.getUsername(), savedUser, Log.LogType.REGISTRATION));
         
         return savedUser;
     }
@@ -85,7 +89,7 @@ public class UserService {
         User savedUser = userRepository.save(user);
         
         // Log the registration
-        logRepository.save(new Log("User registered: " + user.getUsername(), savedUser, "REGISTRATION"));
+        logRepository.save(new Log("User registered: " + user.getUsername(), savedUser, Log.LogType.REGISTRATION));
         
         return savedUser;
     }
@@ -136,7 +140,8 @@ public class UserService {
         target.setOnesignalId(new ArrayList<>());
         userRepository.save(target);
         // Log the removal
-        logRepository.save(new Log("Knowledger " + requester.getUsername() + " removed all OneSignal IDs from user: " + target.getUsername(), requester, "USER_MANAGEMENT"));
+        logRepository.save(new Log("Knowledger " + requester.getUsername() + " removed all OneSignal IDs from user: " + target.getUsername(), requester, Log.LogType.USER_MANAGEMENT)
+            .withTarget(target.getId()));
     }
     
     public Optional<User> findByUsername(String username){
@@ -176,7 +181,9 @@ public class UserService {
         
         // Log the muted status change
         String action = muted ? "muted" : "unmuted";
-        logRepository.save(new Log("Knowledger " + requester.getUsername() + " " + action + " user: " + target.getUsername(), requester, "USER_MANAGEMENT"));
+        logRepository.save(new Log("Knowledger " + requester.getUsername() + " " + action + " user: " + target.getUsername(), requester, Log.LogType.USER_MANAGEMENT)
+            .withTarget(target.getId())
+            .withChange(!muted, muted));
     }
 
     public void changeStatus(CustomUserDetails userDetails, String status) {
@@ -186,11 +193,14 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
         try {
             User.UserStatus newStatus = User.UserStatus.valueOf(status);
+            User.UserStatus oldStatus = user.getStatus();
             user.setStatus(newStatus);
             userRepository.save(user);
             
             // Log the status change
-            logRepository.save(new Log("User " + user.getUsername() + " changed status to " + newStatus, user, "USER_STATUS"));
+            logRepository.save(new Log("User " + user.getUsername() + " changed status to " + newStatus, user, Log.LogType.USER_STATUS)
+                .withTarget(user.getId())
+                .withChange(oldStatus, newStatus));
         } catch (IllegalArgumentException e) {
             throw new BadRequestException("Invalid status value");
         }
@@ -214,7 +224,9 @@ public class UserService {
             userRepository.save(target);
             
             // Log the type change
-            logRepository.save(new Log("Knowledger " + requester.getUsername() + " changed user " + target.getUsername() + " type from " + oldType + " to " + newType, requester, "USER_MANAGEMENT"));
+            logRepository.save(new Log("Knowledger " + requester.getUsername() + " changed user " + target.getUsername() + " type from " + oldType + " to " + newType, requester, Log.LogType.USER_MANAGEMENT)
+                .withTarget(target.getId())
+                .withChange(oldType, newType));
         } catch (IllegalArgumentException e) {
             throw new BadRequestException("Invalid type value");
         }
@@ -240,9 +252,13 @@ public class UserService {
         
         // Log the username change
         if (isSelf) {
-            logRepository.save(new Log("User changed username from " + oldUsername + " to " + username, target, "USER_MANAGEMENT"));
+            logRepository.save(new Log("User changed username from " + oldUsername + " to " + username, target, Log.LogType.USER_MANAGEMENT)
+                .withTarget(target.getId())
+                .withChange(oldUsername, username));
         } else {
-            logRepository.save(new Log("Knowledger " + requester.getUsername() + " changed user's username from " + oldUsername + " to " + username, requester, "USER_MANAGEMENT"));
+            logRepository.save(new Log("Knowledger " + requester.getUsername() + " changed user's username from " + oldUsername + " to " + username, requester, Log.LogType.USER_MANAGEMENT)
+                .withTarget(target.getId())
+                .withChange(oldUsername, username));
         }
     }
 
@@ -302,9 +318,11 @@ public class UserService {
         
         // Log the user deletion before deleting the user
         if (isSelf) {
-            logService.createLog(requester.getId(), new Log("User deleted their own account: " + userToDelete.getUsername(), requester, "USER_DELETION"));
+            logService.createLog(requester.getId(), new Log("User deleted their own account: " + userToDelete.getUsername(), requester, Log.LogType.USER_DELETION)
+                .withTarget(userToDelete.getId()));
         } else {
-            logService.createLog(requester.getId(), new Log("Knowledger " + requester.getUsername() + " deleted user: " + userToDelete.getUsername(), requester, "USER_DELETION"));
+            logService.createLog(requester.getId(), new Log("Knowledger " + requester.getUsername() + " deleted user: " + userToDelete.getUsername(), requester, Log.LogType.USER_DELETION)
+                .withTarget(userToDelete.getId()));
         }
 
         // Delete related data
@@ -319,6 +337,8 @@ public class UserService {
 
         passwordResetRequestRepository.deleteAllByUsername(userToDelete.getUsername());
 
+        doorActivityRollupRepository.deleteAllByUserId(userIdToDelete);
+
         userRepository.delete(userToDelete);
     }
     
@@ -333,6 +353,8 @@ public class UserService {
         
         // Log the multiple door open change
         String action = multiple ? "enabled" : "disabled";
-        logRepository.save(new Log("User " + user.getUsername() + " " + action + " multiple door open", user, "USER_MANAGEMENT"));
+        logRepository.save(new Log("User " + user.getUsername() + " " + action + " multiple door open", user, Log.LogType.USER_MANAGEMENT)
+            .withTarget(user.getId())
+            .withChange(!multiple, multiple));
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.operas.utils;
+
+/**
+ * Minimal consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row
+ * calls are refused for {@code openMillis}; then a single trial call is let through and its
+ * result decides whether the circuit closes again or stays open for another period.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold <= 0 || openMillis <= 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
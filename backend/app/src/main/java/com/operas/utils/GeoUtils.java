@@ -0,0 +1,83 @@
+package com.operas.utils;
+
+/**
+ * Small geographic helpers: great-circle distance and geohash encoding.
+ */
+public final class GeoUtils {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoUtils() {
+    }
+
+    // Straight-line distance over the earth's surface, a lower bound for any walking route
+    public static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Standard geohash; precision 8 is a cell of about 38 x 19 m, 9 about 5 x 5 m
+    public static String geohash(double lat, double lng, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (lng >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    // Point the given distance away along a bearing (degrees clockwise from north), accurate over short distances
+    public static double[] offset(double lat, double lng, double bearingDegrees, double meters) {
+        double bearing = Math.toRadians(bearingDegrees);
+        double dLat = meters * Math.cos(bearing) / EARTH_RADIUS_METERS;
+        double dLng = meters * Math.sin(bearing) / (EARTH_RADIUS_METERS * Math.cos(Math.toRadians(lat)));
+        return new double[] { lat + Math.toDegrees(dLat), lng + Math.toDegrees(dLng) };
+    }
+
+    // Even-odd ray casting test; fine in plain lat/lng for polygons a few hundred metres across
+    public static boolean containsPoint(double[] lats, double[] lngs, double lat, double lng) {
+        boolean inside = false;
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if ((lats[i] > lat) != (lats[j] > lat)
+                    && lng < (lngs[j] - lngs[i]) * (lat - lats[i]) / (lats[j] - lats[i]) + lngs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,81 @@
+package com.operas.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass min/max-per-bucket downsampler for time series.
+ * The window is split into equal time buckets and only the lowest and highest point
+ * of each bucket is kept, so peaks survive and memory is O(buckets) whatever the input size.
+ */
+public class MinMaxDownsampler {
+
+    public record Point(long timestamp, double value) {}
+
+    private final long start;
+    private final long end;
+    private final int buckets;
+
+    private final long[] minTimestamps;
+    private final double[] minValues;
+    private final long[] maxTimestamps;
+    private final double[] maxValues;
+    private final boolean[] filled;
+
+    public MinMaxDownsampler(long start, long end, int buckets) {
+        if (end <= start || buckets <= 0) {
+            throw new IllegalArgumentException("Invalid downsampling window");
+        }
+        this.start = start;
+        this.end = end;
+        this.buckets = buckets;
+        this.minTimestamps = new long[buckets];
+        this.minValues = new double[buckets];
+        this.maxTimestamps = new long[buckets];
+        this.maxValues = new double[buckets];
+        this.filled = new boolean[buckets];
+    }
+
+    public void add(long timestamp, double value) {
+        if (timestamp < start || timestamp > end || Double.isNaN(value)) {
+            return;
+        }
+        int bucket = (int) Math.min(buckets - 1, (timestamp - start) * buckets / (end - start));
+
+        if (!filled[bucket]) {
+            filled[bucket] = true;
+            minTimestamps[bucket] = maxTimestamps[bucket] = timestamp;
+            minValues[bucket] = maxValues[bucket] = value;
+            return;
+        }
+        if (value < minValues[bucket]) {
+            minValues[bucket] = value;
+            minTimestamps[bucket] = timestamp;
+        }
+        if (value > maxValues[bucket]) {
+            maxValues[bucket] = value;
+            maxTimestamps[bucket] = timestamp;
+        }
+    }
+
+    // Selected points in time order; a bucket with a single distinct point contributes it once.
+    // Min and max can share a timestamp (a rollup row adds both at its bucket start), both are kept then.
+    public List<Point> result() {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < buckets; i++) {
+            if (!filled[i]) {
+                continue;
+            }
+            if (minValues[i] == maxValues[i]) {
+                points.add(new Point(minTimestamps[i], minValues[i]));
+            } else if (minTimestamps[i] <= maxTimestamps[i]) {
+                points.add(new Point(minTimestamps[i], minValues[i]));
+                points.add(new Point(maxTimestamps[i], maxValues[i]));
+            } else {
+                points.add(new Point(maxTimestamps[i], maxValues[i]));
+                points.add(new Point(minTimestamps[i], minValues[i]));
+            }
+        }
+        return points;
+    }
+}
@@ -0,0 +1,81 @@
+package com.operas.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.operas.dto.EnvironmentSample;
+import com.operas.dto.PingSample;
+
+import java.io.IOException;
+
+/**
+ * Decodes the Arduino telemetry payloads straight from the MQTT byte[] with the Jackson
+ * streaming parser, reading numbers as primitives without building an intermediate map.
+ */
+public final class TelemetryDecoder {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private TelemetryDecoder() {
+    }
+
+    public static PingSample decodePing(byte[] payload, long receivedAt) throws IOException {
+        double ping = 0;
+        long days = 0, hours = 0, minutes = 0, seconds = 0;
+        int seen = 0;
+
+        try (JsonParser parser = factory.createParser(payload)) {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "ping" -> { ping = parser.getValueAsDouble(); seen |= 1; }
+                    case "uptime_days" -> { days = parser.getValueAsLong(); seen |= 2; }
+                    case "uptime_hours" -> { hours = parser.getValueAsLong(); seen |= 4; }
+                    case "uptime_minutes" -> { minutes = parser.getValueAsLong(); seen |= 8; }
+                    case "uptime_seconds" -> { seconds = parser.getValueAsLong(); seen |= 16; }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        if (seen != 31) {
+            throw new IOException("Incomplete ping payload");
+        }
+        return new PingSample(ping, days, hours, minutes, seconds, receivedAt);
+    }
+
+    public static EnvironmentSample decodeEnvironment(byte[] payload, long receivedAt) throws IOException {
+        double temperature = 0, humidity = 0, pressure = 0, altitude = 0;
+        int airQualityIndex = 0, tvocPpb = 0, eco2Ppm = 0;
+        int seen = 0;
+
+        try (JsonParser parser = factory.createParser(payload)) {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "temperature" -> { temperature = parser.getValueAsDouble(); seen |= 1; }
+                    case "humidity" -> { humidity = parser.getValueAsDouble(); seen |= 2; }
+                    case "pressure" -> { pressure = parser.getValueAsDouble(); seen |= 4; }
+                    case "altitude" -> { altitude = parser.getValueAsDouble(); seen |= 8; }
+                    case "air_quality_index" -> { airQualityIndex = parser.getValueAsInt(); seen |= 16; }
+                    case "tvoc_ppb" -> { tvocPpb = parser.getValueAsInt(); seen |= 32; }
+                    case "eco2_ppm" -> { eco2Ppm = parser.getValueAsInt(); seen |= 64; }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        if (seen != 127) {
+            throw new IOException("Incomplete environment payload");
+        }
+        return new EnvironmentSample(temperature, humidity, pressure, altitude, airQualityIndex, tvocPpb, eco2Ppm, receivedAt);
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+    }
+}
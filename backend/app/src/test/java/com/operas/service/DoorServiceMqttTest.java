@@ -0,0 +1,229 @@
+package com.operas.service;
+
+import com.operas.exceptions.DoorOpenException;
+import com.operas.loadtest.DeviceSimulator;
+import com.operas.model.User;
+import com.operas.repository.LogRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.moquette.broker.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Door open path against an in-process Moquette broker and the simulated device from the loadtest
+ * source set. The database is replaced by an in-memory cluster_leases table and mocks.
+ */
+public class DoorServiceMqttTest {
+
+    private Server broker;
+    private String brokerUrl;
+    private DeviceSimulator device;
+    private DoorService doorService;
+    private LeaseTable leases;
+
+    @Before
+    public void startBroker() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        broker = DeviceSimulator.startBroker(String.valueOf(port));
+        brokerUrl = "tcp://localhost:" + port;
+    }
+
+    @After
+    public void stopBroker() {
+        if (doorService != null) {
+            doorService.shutdown();
+        }
+        if (device != null) {
+            device.stop();
+        }
+        broker.stopServer();
+    }
+
+    @Test
+    public void opensTheOuterDoor() throws Exception {
+        startDevice(Map.of("latency-ms", "50"));
+        startDoorService();
+
+        ResponseEntity<?> response = doorService.openDoor(houser(1));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("Outer door opened successfully", response.getBody());
+        // Answered, so the door is free again
+        assertTrue(leases.isFree("door_outer"));
+    }
+
+    @Test
+    public void reportsAFailedOuterDoor() throws Exception {
+        startDevice(Map.of("latency-ms", "50", "failure-rate", "1.0"));
+        startDoorService();
+
+        ResponseEntity<?> response = doorService.openDoor(houser(1));
+
+        assertEquals(503, response.getStatusCode().value());
+        assertTrue(leases.isFree("door_outer"));
+    }
+
+    @Test
+    public void keepsTheDoorHeldAfterAnUnansweredCommand() throws Exception {
+        startDevice(Map.of("drop-rate", "1.0"));
+        startDoorService();
+
+        try {
+            doorService.openDoor(houser(1));
+            fail("Expected the response wait to time out");
+        } catch (DoorOpenException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Error opening door via MQTT"));
+        }
+
+        // A late status must not answer the next command, so nobody gets the door until the lock expires
+        assertFalse(leases.isFree("door_outer"));
+        try {
+            doorService.openDoor(houser(2));
+            fail("Expected the door to still be held");
+        } catch (DoorOpenException e) {
+            assertEquals("Door is busy, try again in a moment", e.getMessage());
+        }
+    }
+
+    @Test
+    public void letsOnlyOneOfTwoConcurrentOpensThrough() throws Exception {
+        startDevice(Map.of("latency-ms", "300"));
+        startDoorService();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<String>> results = new ArrayList<>();
+        for (long userId = 1; userId <= 2; userId++) {
+            User user = houser(userId);
+            Callable<String> open = () -> {
+                start.await();
+                try {
+                    return String.valueOf(doorService.openDoor(user).getBody());
+                } catch (DoorOpenException e) {
+                    return e.getMessage();
+                }
+            };
+            results.add(pool.submit(open));
+        }
+        start.countDown();
+
+        List<String> outcomes = new ArrayList<>();
+        for (Future<String> result : results) {
+            outcomes.add(result.get());
+        }
+        pool.shutdown();
+
+        assertTrue(outcomes.toString(), outcomes.contains("Outer door opened successfully"));
+        assertTrue(outcomes.toString(), outcomes.contains("Door is busy, try again in a moment"));
+    }
+
+    private void startDevice(Map<String, String> options) throws Exception {
+        Map<String, String> settings = new HashMap<>(options);
+        // Keep the periodic telemetry out of the way of the door commands
+        settings.put("heartbeat-interval-ms", "60000");
+        settings.put("telemetry-interval-ms", "60000");
+        device = new DeviceSimulator(brokerUrl, settings);
+        device.start();
+    }
+
+    private void startDoorService() throws Exception {
+        LogRepository logRepository = mock(LogRepository.class);
+        when(logRepository.findByUser_IdAndLogTypeAndTimestampAfter(any(), any(), any())).thenReturn(List.of());
+        leases = new LeaseTable();
+
+        doorService = new DoorService();
+        ReflectionTestUtils.setField(doorService, "partyService", mock(PartyService.class));
+        ReflectionTestUtils.setField(doorService, "logRepository", logRepository);
+        ReflectionTestUtils.setField(doorService, "notificationService", mock(NotificationService.class));
+        ReflectionTestUtils.setField(doorService, "routingService", mock(RoutingService.class));
+        ReflectionTestUtils.setField(doorService, "statisticsService", mock(StatisticsService.class));
+        ReflectionTestUtils.setField(doorService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(doorService, "doorTraceService", mock(DoorTraceService.class));
+        ReflectionTestUtils.setField(doorService, "leaderLeaseService", mock(LeaderLeaseService.class));
+        ReflectionTestUtils.setField(doorService, "jdbcTemplate", leases);
+        ReflectionTestUtils.setField(doorService, "MQTT_BROKER", brokerUrl);
+        ReflectionTestUtils.setField(doorService, "MQTT_USERNAME", "");
+        ReflectionTestUtils.setField(doorService, "MQTT_PASSWORD", "");
+        ReflectionTestUtils.setField(doorService, "doorQos", 0);
+        ReflectionTestUtils.setField(doorService, "doorClientId", "operas-door-service-test");
+        ReflectionTestUtils.setField(doorService, "maxInflight", 2);
+        doorService.init();
+    }
+
+    private static User houser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("houser" + id);
+        user.setType(User.UserType.HOUSER);
+        return user;
+    }
+
+    // cluster_leases in memory: understands the create, claim and release statements of the door locks
+    private static class LeaseTable extends JdbcTemplate {
+        private final Map<String, String> owners = new HashMap<>();
+        private final Map<String, Long> expiresAt = new HashMap<>();
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            long now = System.currentTimeMillis();
+            if (sql.startsWith("INSERT IGNORE INTO cluster_leases")) {
+                String lease = (String) args[0];
+                if (owners.containsKey(lease)) {
+                    return 0;
+                }
+                owners.put(lease, "");
+                expiresAt.put(lease, now - 1000);
+                return 1;
+            }
+            if (sql.startsWith("UPDATE cluster_leases SET owner = ?")) {
+                String lease = (String) args[2];
+                if (!owners.containsKey(lease) || expiresAt.get(lease) >= now) {
+                    return 0;
+                }
+                owners.put(lease, (String) args[0]);
+                expiresAt.put(lease, now + ((Number) args[1]).longValue() * 1000);
+                return 1;
+            }
+            if (sql.startsWith("UPDATE cluster_leases SET expires_at = NOW(3) - INTERVAL 1 SECOND")) {
+                String lease = (String) args[0];
+                if (!args[1].equals(owners.get(lease))) {
+                    return 0;
+                }
+                expiresAt.put(lease, now - 1000);
+                return 1;
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        synchronized boolean isFree(String lease) {
+            return expiresAt.get(lease) < System.currentTimeMillis();
+        }
+    }
+}
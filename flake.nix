@@ -12,14 +12,14 @@
       {
         devShell = pkgs.mkShell {
           buildInputs = with pkgs; [
-            jdk17
+            jdk21
             nodejs
             gradle
             mariadb
           ];
           shellHook = ''
-            export JAVA_HOME=${pkgs.jdk17}
-            PATH="${pkgs.jdk17}/bin:$PATH"
+            export JAVA_HOME=${pkgs.jdk21}
+            PATH="${pkgs.jdk21}/bin:$PATH"
           '';
         };
       }
@@ -35,4 +35,5 @@ export const API_ENDPOINTS = {
   REJECT_PASSWORD_RESET: '/maintenance/password-reset-requests',
   LOGS_PAGINATED: '/logs/paginated',
   LOGS_COUNT: '/logs/count',
+  LOGS_SEARCH: '/logs/search',
 };
@@ -10,6 +10,15 @@ export const getLogs = async (page = 0, size = 100) => {
   }
 };
 
+export const searchLogs = async (query, page = 0, size = 100) => {
+  try {
+    const response = await api.get(API_ENDPOINTS.LOGS_SEARCH, { params: { q: query, page, size } });
+    return response.data;
+  } catch (error) {
+    throw error;
+  }
+};
+
 export const getLogsCount = async () => {
   try {
     const response = await api.get(API_ENDPOINTS.LOGS_COUNT);
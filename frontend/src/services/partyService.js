@@ -75,6 +75,15 @@ export const removeGuestFromParty = async (partyId, guestUserId) => {
   }
 };
 
+export const updatePartyGuests = async (partyId, add = [], remove = []) => {
+  try {
+    const response = await api.patch(`${API_ENDPOINTS.PARTIES}${partyId}/guests`, { add, remove });
+    return response.data;
+  } catch (error) {
+    throw error;
+  }
+};
+
 export const updatePartySchedule = async (partyId, dateTime, endDateTime) => {
   try {
     const payload = { dateTime, endDateTime };
@@ -3,3 +3,19 @@ import api from './api';
 export const getEnvironmentData = (hours = 24) => {
   return api.get(`/api/statistics/environment?hours=${hours}`);
 };
+
+export const getLiveEnvironmentData = (minutes = 30) => {
+  return api.get(`/api/statistics/environment/live?minutes=${minutes}`);
+};
+
+export const getEnvironmentMetric = (metric, hours = 24, points = 200) => {
+  return api.get(`/api/statistics/environment/${metric}?hours=${hours}&points=${points}`);
+};
+
+export const getDoorStatistics = (days = 30) => {
+  return api.get(`/api/statistics/door?days=${days}`);
+};
+
+export const getDeviceAvailability = (days = 7) => {
+  return api.get(`/api/statistics/device-availability?days=${days}`);
+};